@@ -1,59 +1,74 @@
 package org.jboss.forge;
 
-import com.google.common.io.Files;
+import com.google.common.base.Joiner;
+import org.jboss.forge.export.BinaryDependencyWriter;
+import org.jboss.forge.export.DependencyWriter;
+import org.jboss.forge.export.JsonLinesDependencyWriter;
+import org.jboss.forge.parser.groovy.UnresolvedInvocation;
 import org.jboss.forge.project.Dependency;
+import org.jboss.forge.project.DependencyDeclaration;
+import org.jboss.forge.project.GradleBuildFile;
 import org.jboss.forge.project.GradleProject;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
 import java.nio.charset.Charset;
+import java.util.NoSuchElementException;
 import java.util.Scanner;
 
 /**
  * Simple UI for Gradle project manipulation.
+ * <p/>
+ * Without arguments it runs interactive console. Otherwise arguments are executed as a single command, without
+ * menu and prompts, like: list-dependencies or add-dependency a:b:1.0 testCompile. Groovy classes are loaded
+ * only when a command needs to parse the build file.
  *
  * @author Adam Wyłuda
  */
 public class MainClass {
 
-    private final Scanner in = new Scanner(System.in);
-    private final GradleProject gradleProject;
+    private final Scanner in;
+    private final boolean interactive;
+    private final GradleBuildFile gradleBuildFile;
 
     public static void main(String... args) {
-        new MainClass().start();
+        if (args.length > 0) {
+            new MainClass(new Scanner(Joiner.on(' ').join(args)), false).runCommand();
+        } else {
+            new MainClass().start();
+        }
     }
 
     public MainClass() {
-        System.out.println("Reading build.gradle...");
-        String source = readGradleFile();
-        gradleProject = new GradleProject(source);
+        this(new Scanner(System.in), true);
+    }
+
+    MainClass(Scanner in, boolean interactive) {
+        this.in = in;
+        this.interactive = interactive;
+        prompt("Reading build.gradle...");
+        gradleBuildFile = readGradleFile();
     }
 
-    String readGradleFile() {
-        File gradleBuildFile = new File("build.gradle");
-        if (!gradleBuildFile.isFile()) {
+    /**
+     * Build file may be edited by other processes at the same time, every edit is saved without losing their changes.
+     */
+    GradleBuildFile readGradleFile() {
+        File file = new File("build.gradle");
+        if (!file.isFile()) {
             System.out.println("Gradle build file not found!");
             System.exit(1);
         }
-        String content = "";
-        try {
-            content = Files.toString(gradleBuildFile, Charset.defaultCharset());
-        } catch (IOException exception) {
-            exception.printStackTrace();
-            System.exit(1);
-        }
-        return content;
-    }
-
-    void saveGradleFile() {
-        File gradleBuildFile = new File("build.gradle");
-        String source = gradleProject.getSource();
+        GradleBuildFile buildFile = null;
         try {
-            Files.write(source, gradleBuildFile, Charset.defaultCharset());
+            buildFile = new GradleBuildFile(file, Charset.defaultCharset());
         } catch (IOException exception) {
             exception.printStackTrace();
             System.exit(1);
         }
+        return buildFile;
     }
 
     public void start() {
@@ -68,8 +83,27 @@ public class MainClass {
         }
     }
 
+    /**
+     * Executes command read from arguments, options of the command are read from the following arguments.
+     */
+    void runCommand() {
+        String option = in.next();
+        try {
+            execute(option);
+        } catch (NoSuchElementException exception) {
+            System.out.println("Missing arguments of " + option);
+            System.exit(2);
+        }
+    }
+
+    void prompt(String message) {
+        if (interactive) {
+            System.out.println(message);
+        }
+    }
+
     void showMenu() {
-        System.out.println("\n*** Available options: list-dependencies, add-dependency, remove-dependency, exit");
+        System.out.println("\n*** Available options: list-dependencies, export-dependencies, add-dependency, remove-dependency, undo, redo, exit");
         System.out.print("->");
     }
 
@@ -78,34 +112,100 @@ public class MainClass {
             case "list-dependencies":
                 listDependencies();
                 break;
+            case "export-dependencies":
+                exportDependencies();
+                break;
             case "add-dependency":
                 addDependency();
                 break;
             case "remove-dependency":
                 removeDependency();
                 break;
+            case "undo":
+                undo();
+                break;
+            case "redo":
+                redo();
+                break;
             case "exit":
                 exit();
                 break;
+            default:
+                System.out.println("Unknown option: " + option);
+                // Console shows the menu again, but a script has to notice the failed command
+                if (!interactive) {
+                    System.exit(2);
+                }
         }
     }
 
     void listDependencies() {
+        GradleProject gradleProject = gradleBuildFile.getProject();
         for (Dependency dependency : gradleProject.getDependencies()) {
             System.out.println(String.format("%s '%s'", dependency.getType().getMethodName(), dependency.toGradleString()));
         }
+        for (UnresolvedInvocation invocation : gradleProject.getUnresolvedDependencies()) {
+            System.out.println(String.format("%s %s (unresolved: %s)", invocation.getMethodName(),
+                    invocation.getArgumentsText(), Joiner.on(", ").join(invocation.getUnresolvedNames())));
+        }
+    }
+
+    /**
+     * Writes dependencies to standard output in machine readable format, record by record.
+     */
+    void exportDependencies() {
+        prompt("Enter format (jsonl, binary):");
+        String format = interactive || in.hasNext() ? in.next() : "jsonl";
+        WritableByteChannel channel = Channels.newChannel(System.out);
+        DependencyWriter writer = "binary".equals(format) ?
+                new BinaryDependencyWriter(channel) : new JsonLinesDependencyWriter(channel);
+        try {
+            for (DependencyDeclaration declaration : gradleBuildFile.getProject().getDependencyDeclarations()) {
+                writer.writeDependency("build.gradle", declaration);
+            }
+            // Standard output is not closed, only flushed
+            writer.flush();
+        } catch (IOException exception) {
+            exception.printStackTrace();
+        }
     }
 
     void addDependency() {
         Dependency dependency = readDependency();
-        gradleProject.addDependency(dependency);
-        saveGradleFile();
+        try {
+            gradleBuildFile.addDependency(dependency);
+        } catch (IOException exception) {
+            exception.printStackTrace();
+            System.exit(1);
+        }
     }
 
     void removeDependency() {
         Dependency dependency = readDependency();
-        gradleProject.removeDependency(dependency);
-        saveGradleFile();
+        try {
+            gradleBuildFile.removeDependency(dependency);
+        } catch (IOException exception) {
+            exception.printStackTrace();
+            System.exit(1);
+        }
+    }
+
+    void undo() {
+        try {
+            gradleBuildFile.undo();
+        } catch (IOException exception) {
+            exception.printStackTrace();
+            System.exit(1);
+        }
+    }
+
+    void redo() {
+        try {
+            gradleBuildFile.redo();
+        } catch (IOException exception) {
+            exception.printStackTrace();
+            System.exit(1);
+        }
     }
 
     void exit() {
@@ -113,13 +213,14 @@ public class MainClass {
     }
 
     Dependency readDependency() {
-        System.out.println("Enter dependency string (in format: group:name:version):");
+        prompt("Enter dependency string (in format: group:name:version):");
         String dependencyString = in.next();
-        System.out.println("Enter configuration (compile, runtime, testCompile, testRuntime):");
-        String config = in.next();
+        prompt("Enter configuration (compile, runtime, testCompile, testRuntime):");
+        // Configuration is optional in a command
+        String config = interactive || in.hasNext() ? in.next() : Dependency.Type.COMPILE.getMethodName();
         Dependency.Type type = Dependency.Type.COMPILE;
         for (Dependency.Type dependencyType : Dependency.Type.values()) {
-            if (dependencyType.getMethodName().equals(type)) {
+            if (dependencyType.getMethodName().equals(config)) {
                 type = dependencyType;
             }
         }
@@ -0,0 +1,102 @@
+package org.jboss.forge.export;
+
+import com.google.common.base.Charsets;
+import org.jboss.forge.project.Dependency;
+import org.jboss.forge.project.DependencyDeclaration;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * Writes records in compact binary format. All numbers are big endian.
+ * <p/>
+ * Every record starts with its length (int, not counting the length itself) and record type (byte),
+ * so readers can skip records they don't understand. Strings are written as length (int, -1 for null)
+ * followed by UTF-8 bytes.
+ * <ul>
+ * <li>{@link #DEPENDENCY_RECORD}: module, configuration, group, name, version,
+ * line, column, last line, last column (ints)</li>
+ * <li>{@link #MODULE_REMOVED_RECORD}: module</li>
+ * <li>{@link #MODULE_REPLACED_RECORD}: module, its earlier records are replaced by dependency records which follow</li>
+ * </ul>
+ *
+ * @author Adam Wyłuda
+ */
+public class BinaryDependencyWriter extends ChannelDependencyWriter {
+
+    public static final byte DEPENDENCY_RECORD = 1;
+    public static final byte MODULE_REMOVED_RECORD = 2;
+    public static final byte MODULE_REPLACED_RECORD = 3;
+
+    public BinaryDependencyWriter(WritableByteChannel channel) {
+        this(channel, DEFAULT_BUFFER_SIZE);
+    }
+
+    public BinaryDependencyWriter(WritableByteChannel channel, int bufferSize) {
+        super(channel, bufferSize);
+    }
+
+    @Override
+    public void writeDependency(String module, DependencyDeclaration declaration) throws IOException {
+        Dependency dependency = declaration.getDependency();
+        byte[][] strings = {
+                encode(module),
+                encode(dependency.getType().getMethodName()),
+                encode(dependency.getGroupId()),
+                encode(dependency.getArtifactId()),
+                encode(dependency.getVersion())
+        };
+        int length = 1 + stringsLength(strings) + 4 * 4;
+        ByteBuffer buffer = buffer(4 + length);
+        buffer.putInt(length);
+        buffer.put(DEPENDENCY_RECORD);
+        putStrings(buffer, strings);
+        buffer.putInt(declaration.getLineNumber());
+        buffer.putInt(declaration.getColumnNumber());
+        buffer.putInt(declaration.getLastLineNumber());
+        buffer.putInt(declaration.getLastColumnNumber());
+    }
+
+    @Override
+    public void writeModuleReplaced(String module) throws IOException {
+        writeModuleRecord(MODULE_REPLACED_RECORD, module);
+    }
+
+    @Override
+    public void writeModuleRemoved(String module) throws IOException {
+        writeModuleRecord(MODULE_REMOVED_RECORD, module);
+    }
+
+    void writeModuleRecord(byte recordType, String module) throws IOException {
+        byte[][] strings = {encode(module)};
+        int length = 1 + stringsLength(strings);
+        ByteBuffer buffer = buffer(4 + length);
+        buffer.putInt(length);
+        buffer.put(recordType);
+        putStrings(buffer, strings);
+    }
+
+    static byte[] encode(String string) {
+        return string != null ? string.getBytes(Charsets.UTF_8) : null;
+    }
+
+    static int stringsLength(byte[][] strings) {
+        int length = 0;
+        for (byte[] string : strings) {
+            length += 4 + (string != null ? string.length : 0);
+        }
+        return length;
+    }
+
+    static void putStrings(ByteBuffer buffer, byte[][] strings) {
+        for (byte[] string : strings) {
+            if (string == null) {
+                buffer.putInt(-1);
+            } else {
+                buffer.putInt(string.length);
+                buffer.put(string);
+            }
+        }
+    }
+}
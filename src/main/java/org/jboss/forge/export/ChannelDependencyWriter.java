@@ -0,0 +1,59 @@
+package org.jboss.forge.export;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * Base of writers which encode records into a buffer and write it to a channel when it's full.
+ *
+ * @author Adam Wyłuda
+ */
+public abstract class ChannelDependencyWriter implements DependencyWriter {
+
+    public static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+
+    private final WritableByteChannel channel;
+    private ByteBuffer buffer;
+
+    protected ChannelDependencyWriter(WritableByteChannel channel, int bufferSize) {
+        this.channel = channel;
+        this.buffer = ByteBuffer.allocate(bufferSize);
+    }
+
+    /**
+     * Returns buffer with at least given count of bytes remaining, flushing it if necessary.
+     */
+    protected ByteBuffer buffer(int requiredBytes) throws IOException {
+        if (buffer.remaining() < requiredBytes) {
+            flushBuffer();
+            // Record bigger than the whole buffer
+            if (buffer.capacity() < requiredBytes) {
+                buffer = ByteBuffer.allocate(requiredBytes);
+            }
+        }
+        return buffer;
+    }
+
+    @Override
+    public void flush() throws IOException {
+        flushBuffer();
+    }
+
+    /**
+     * Flushes buffered records and closes the channel.
+     */
+    @Override
+    public void close() throws IOException {
+        flushBuffer();
+        channel.close();
+    }
+
+    void flushBuffer() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+}
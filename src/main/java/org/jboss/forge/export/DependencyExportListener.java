@@ -0,0 +1,36 @@
+package org.jboss.forge.export;
+
+import org.jboss.forge.project.DependencyDeclaration;
+import org.jboss.forge.scan.ModuleScanResult;
+import org.jboss.forge.scan.ScanListener;
+
+import java.io.IOException;
+
+/**
+ * Writes dependencies of every module as soon as it is scanned, so the whole listing is never kept in memory.
+ * Dependencies of a changed module are preceded by a "module replaced" record, so a reader applying output of
+ * an incremental scan drops dependencies written for the module before, including removed ones.
+ *
+ * @author Adam Wyłuda
+ */
+public class DependencyExportListener implements ScanListener {
+
+    private final DependencyWriter writer;
+
+    public DependencyExportListener(DependencyWriter writer) {
+        this.writer = writer;
+    }
+
+    @Override
+    public void moduleChanged(ModuleScanResult result) throws IOException {
+        writer.writeModuleReplaced(result.getPath());
+        for (DependencyDeclaration declaration : result.getDependencyDeclarations()) {
+            writer.writeDependency(result.getPath(), declaration);
+        }
+    }
+
+    @Override
+    public void moduleRemoved(String path) throws IOException {
+        writer.writeModuleRemoved(path);
+    }
+}
@@ -0,0 +1,31 @@
+package org.jboss.forge.export;
+
+import org.jboss.forge.project.DependencyDeclaration;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+
+/**
+ * Writes dependency records one by one, so listings of any size can be exported without keeping them in memory.
+ *
+ * @author Adam Wyłuda
+ */
+public interface DependencyWriter extends Closeable, Flushable {
+
+    /**
+     * Writes record of dependency declared in given module.
+     */
+    void writeDependency(String module, DependencyDeclaration declaration) throws IOException;
+
+    /**
+     * Writes record saying that all earlier records of given module are replaced by records which follow it,
+     * used by incremental scans before dependencies of a changed module.
+     */
+    void writeModuleReplaced(String module) throws IOException;
+
+    /**
+     * Writes record saying that given module doesn't exist anymore, used by incremental scans.
+     */
+    void writeModuleRemoved(String module) throws IOException;
+}
@@ -0,0 +1,109 @@
+package org.jboss.forge.export;
+
+import com.google.common.base.Charsets;
+import org.jboss.forge.project.Dependency;
+import org.jboss.forge.project.DependencyDeclaration;
+
+import java.io.IOException;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * Writes every record as a single line with JSON object, like:
+ * {"module":"api/build.gradle","configuration":"compile","group":"a","name":"b","version":"1",
+ * "line":2,"column":5,"lastLine":2,"lastColumn":20}
+ * <p/>
+ * Records of modules replaced or removed by an incremental scan have only the module and a flag:
+ * {"module":"api/build.gradle","replaced":true} or {"module":"api/build.gradle","removed":true}
+ *
+ * @author Adam Wyłuda
+ */
+public class JsonLinesDependencyWriter extends ChannelDependencyWriter {
+
+    public JsonLinesDependencyWriter(WritableByteChannel channel) {
+        this(channel, DEFAULT_BUFFER_SIZE);
+    }
+
+    public JsonLinesDependencyWriter(WritableByteChannel channel, int bufferSize) {
+        super(channel, bufferSize);
+    }
+
+    @Override
+    public void writeDependency(String module, DependencyDeclaration declaration) throws IOException {
+        Dependency dependency = declaration.getDependency();
+        StringBuilder builder = new StringBuilder(192);
+        builder.append("{\"module\":");
+        appendString(builder, module);
+        builder.append(",\"configuration\":");
+        appendString(builder, dependency.getType().getMethodName());
+        builder.append(",\"group\":");
+        appendString(builder, dependency.getGroupId());
+        builder.append(",\"name\":");
+        appendString(builder, dependency.getArtifactId());
+        builder.append(",\"version\":");
+        appendString(builder, dependency.getVersion());
+        builder.append(",\"line\":").append(declaration.getLineNumber());
+        builder.append(",\"column\":").append(declaration.getColumnNumber());
+        builder.append(",\"lastLine\":").append(declaration.getLastLineNumber());
+        builder.append(",\"lastColumn\":").append(declaration.getLastColumnNumber());
+        builder.append("}\n");
+        writeLine(builder);
+    }
+
+    @Override
+    public void writeModuleReplaced(String module) throws IOException {
+        writeModuleRecord(module, "replaced");
+    }
+
+    @Override
+    public void writeModuleRemoved(String module) throws IOException {
+        writeModuleRecord(module, "removed");
+    }
+
+    void writeModuleRecord(String module, String flag) throws IOException {
+        StringBuilder builder = new StringBuilder(64);
+        builder.append("{\"module\":");
+        appendString(builder, module);
+        builder.append(",\"").append(flag).append("\":true}\n");
+        writeLine(builder);
+    }
+
+    void writeLine(StringBuilder builder) throws IOException {
+        byte[] bytes = builder.toString().getBytes(Charsets.UTF_8);
+        buffer(bytes.length).put(bytes);
+    }
+
+    static void appendString(StringBuilder builder, String string) {
+        if (string == null) {
+            builder.append("null");
+            return;
+        }
+        builder.append('"');
+        for (int index = 0; index < string.length(); index++) {
+            char character = string.charAt(index);
+            switch (character) {
+                case '"':
+                    builder.append("\\\"");
+                    break;
+                case '\\':
+                    builder.append("\\\\");
+                    break;
+                case '\n':
+                    builder.append("\\n");
+                    break;
+                case '\r':
+                    builder.append("\\r");
+                    break;
+                case '\t':
+                    builder.append("\\t");
+                    break;
+                default:
+                    if (character < 0x20) {
+                        builder.append(String.format("\\u%04x", (int) character));
+                    } else {
+                        builder.append(character);
+                    }
+            }
+        }
+        builder.append('"');
+    }
+}
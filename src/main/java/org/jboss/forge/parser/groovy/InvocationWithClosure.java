@@ -14,6 +14,8 @@ public class InvocationWithClosure extends SourceCodeElement {
     private final List<InvocationWithClosure> internalInvocations;
     private final List<InvocationWithString> stringInvocations;
     private final List<InvocationWithMap> mapInvocations;
+    private final List<UnresolvedInvocation> unresolvedInvocations = new ArrayList<>();
+    private final List<InvocationWithoutArguments> invocationsWithoutArguments = new ArrayList<>();
 
     public InvocationWithClosure(String methodName, int lineNumber, int columnNumber, int lastLineNumber, int lastColumnNumber) {
         this(methodName,
@@ -50,4 +52,15 @@ public class InvocationWithClosure extends SourceCodeElement {
     public List<InvocationWithMap> getInternalMapInvocations() {
         return mapInvocations;
     }
+
+    /**
+     * @return Invocations with arguments which couldn't be evaluated, like interpolated strings with unknown values.
+     */
+    public List<UnresolvedInvocation> getInternalUnresolvedInvocations() {
+        return unresolvedInvocations;
+    }
+
+    public List<InvocationWithoutArguments> getInternalInvocationsWithoutArguments() {
+        return invocationsWithoutArguments;
+    }
 }
@@ -0,0 +1,21 @@
+package org.jboss.forge.parser.groovy;
+
+/**
+ * Represents invocation of a method without arguments, like: mavenCentral().
+ *
+ * @author Adam Wyłuda
+ */
+public class InvocationWithoutArguments extends SourceCodeElement {
+
+    private final String methodName;
+
+    public InvocationWithoutArguments(String methodName, int lineNumber, int columnNumber,
+                                      int lastLineNumber, int lastColumnNumber) {
+        super(lineNumber, columnNumber, lastLineNumber, lastColumnNumber);
+        this.methodName = methodName;
+    }
+
+    public String getMethodName() {
+        return methodName;
+    }
+}
@@ -0,0 +1,30 @@
+package org.jboss.forge.parser.groovy;
+
+/**
+ * Describes a fragment of source which couldn't be parsed and was skipped in tolerant parse mode.
+ * Position covers the whole skipped fragment, last column is exclusive.
+ *
+ * @author Adam Wyłuda
+ */
+public class ParseDiagnostic extends SourceCodeElement {
+
+    private final String message;
+
+    public ParseDiagnostic(String message, int lineNumber, int columnNumber, int lastLineNumber, int lastColumnNumber) {
+        super(lineNumber, columnNumber, lastLineNumber, lastColumnNumber);
+        this.message = message;
+    }
+
+    /**
+     * @return Message of the syntax error found in the skipped fragment.
+     */
+    public String getMessage() {
+        return message;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d:%d-%d:%d %s", getLineNumber(), getColumnNumber(),
+                getLastLineNumber(), getLastColumnNumber(), message);
+    }
+}
@@ -0,0 +1,180 @@
+package org.jboss.forge.parser.groovy;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.google.common.base.Preconditions.checkPositionIndexes;
+
+/**
+ * Immutable text stored as a balanced tree of small chunks.
+ * Modified ropes share all unchanged chunks with the original one, so a patch costs time and memory
+ * proportional to its size and to the depth of the tree, not to the length of the whole text.
+ *
+ * @author Adam Wyłuda
+ */
+public abstract class Rope {
+
+    static final int MAX_LEAF_LENGTH = 512;
+    static final int MAX_DEPTH = 48;
+
+    private static final Rope EMPTY = new Leaf("");
+
+    public static Rope of(String string) {
+        if (string.length() <= MAX_LEAF_LENGTH) {
+            return string.isEmpty() ? EMPTY : new Leaf(string);
+        }
+        List<Rope> leaves = new ArrayList<>();
+        for (int start = 0; start < string.length(); start += MAX_LEAF_LENGTH) {
+            leaves.add(new Leaf(string.substring(start, Math.min(string.length(), start + MAX_LEAF_LENGTH))));
+        }
+        return balanced(leaves, 0, leaves.size());
+    }
+
+    public abstract int length();
+
+    abstract int depth();
+
+    abstract Rope subRope(int start, int end);
+
+    abstract void appendTo(StringBuilder builder);
+
+    abstract void collectLeaves(List<Rope> leaves);
+
+    public Rope substring(int start, int end) {
+        checkPositionIndexes(start, end, length());
+        if (start == 0 && end == length()) {
+            return this;
+        }
+        if (start == end) {
+            return EMPTY;
+        }
+        return subRope(start, end);
+    }
+
+    public Rope concat(Rope other) {
+        if (other.length() == 0) {
+            return this;
+        }
+        if (length() == 0) {
+            return other;
+        }
+        // Small neighbouring chunks are merged, so that many small edits don't create many tiny leaves
+        if (this instanceof Leaf && other instanceof Leaf && length() + other.length() <= MAX_LEAF_LENGTH) {
+            return new Leaf(((Leaf) this).string + ((Leaf) other).string);
+        }
+        Rope rope = new Concat(this, other);
+        return rope.depth() > MAX_DEPTH ? rebalance(rope) : rope;
+    }
+
+    public Rope apply(SourcePatch patch) {
+        int end = patch.getOffset() + patch.getDeleteLength();
+        checkPositionIndexes(patch.getOffset(), end, length());
+        return substring(0, patch.getOffset())
+                .concat(of(patch.getInsertText()))
+                .concat(substring(end, length()));
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder(length());
+        appendTo(builder);
+        return builder.toString();
+    }
+
+    static Rope rebalance(Rope rope) {
+        List<Rope> leaves = new ArrayList<>();
+        rope.collectLeaves(leaves);
+        return balanced(leaves, 0, leaves.size());
+    }
+
+    static Rope balanced(List<Rope> leaves, int from, int to) {
+        if (to - from == 1) {
+            return leaves.get(from);
+        }
+        int middle = (from + to) >>> 1;
+        return new Concat(balanced(leaves, from, middle), balanced(leaves, middle, to));
+    }
+
+    static class Leaf extends Rope {
+
+        private final String string;
+
+        Leaf(String string) {
+            this.string = string;
+        }
+
+        @Override
+        public int length() {
+            return string.length();
+        }
+
+        @Override
+        int depth() {
+            return 0;
+        }
+
+        @Override
+        Rope subRope(int start, int end) {
+            return new Leaf(string.substring(start, end));
+        }
+
+        @Override
+        void appendTo(StringBuilder builder) {
+            builder.append(string);
+        }
+
+        @Override
+        void collectLeaves(List<Rope> leaves) {
+            leaves.add(this);
+        }
+    }
+
+    static class Concat extends Rope {
+
+        private final Rope left;
+        private final Rope right;
+        private final int length;
+        private final int depth;
+
+        Concat(Rope left, Rope right) {
+            this.left = left;
+            this.right = right;
+            this.length = left.length() + right.length();
+            this.depth = Math.max(left.depth(), right.depth()) + 1;
+        }
+
+        @Override
+        public int length() {
+            return length;
+        }
+
+        @Override
+        int depth() {
+            return depth;
+        }
+
+        @Override
+        Rope subRope(int start, int end) {
+            int leftLength = left.length();
+            if (end <= leftLength) {
+                return left.substring(start, end);
+            }
+            if (start >= leftLength) {
+                return right.substring(start - leftLength, end - leftLength);
+            }
+            return left.substring(start, leftLength).concat(right.substring(0, end - leftLength));
+        }
+
+        @Override
+        void appendTo(StringBuilder builder) {
+            left.appendTo(builder);
+            right.appendTo(builder);
+        }
+
+        @Override
+        void collectLeaves(List<Rope> leaves) {
+            left.collectLeaves(leaves);
+            right.collectLeaves(leaves);
+        }
+    }
+}
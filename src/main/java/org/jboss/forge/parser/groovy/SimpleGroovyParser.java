@@ -1,5 +1,6 @@
 package org.jboss.forge.parser.groovy;
 
+import com.google.common.base.Optional;
 import org.codehaus.groovy.ast.ModuleNode;
 import org.codehaus.groovy.ast.expr.*;
 import org.codehaus.groovy.ast.stmt.BlockStatement;
@@ -7,6 +8,8 @@ import org.codehaus.groovy.ast.stmt.ExpressionStatement;
 import org.codehaus.groovy.ast.stmt.Statement;
 import org.codehaus.groovy.control.SourceUnit;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -14,20 +17,53 @@ import java.util.Map;
 /**
  * This is a minimal groovy parser necessary to obtain information about gradle project.
  * It can create method invocation tree from given source, as gradle build configuration is invocation oriented.
+ * Arguments which refer to variables or extra properties are evaluated with {@link SymbolTable} of the script,
+ * invocations with arguments which can't be evaluated are reported as {@link UnresolvedInvocation}.
  *
  * @author Adam Wyłuda
  */
 public class SimpleGroovyParser {
 
+    private final InvocationWithClosure root;
     private final List<InvocationWithClosure> invocationWithClosureList;
     private final List<InvocationWithMap> invocationWithMapList;
     private final List<InvocationWithString> invocationWithStringList;
+    private final List<UnresolvedInvocation> unresolvedInvocationList;
+    private final SymbolTable symbolTable;
+    private final List<ParseDiagnostic> diagnostics;
 
     public SimpleGroovyParser(String source) {
-        InvocationWithClosure root = createInvocationWithClosureRoot(source);
+        this(source, false);
+    }
+
+    /**
+     * @param tolerant If true, statements with syntax errors are skipped and reported as diagnostics,
+     *                 otherwise any syntax error fails the whole parse.
+     */
+    public SimpleGroovyParser(String source, boolean tolerant) {
+        BlockStatement sourceBlockStatement;
+        if (tolerant) {
+            TolerantSourceParser tolerantParser = new TolerantSourceParser(source);
+            sourceBlockStatement = tolerantParser.parse();
+            diagnostics = tolerantParser.getDiagnostics();
+        } else {
+            sourceBlockStatement = parseSource(source);
+            diagnostics = Collections.emptyList();
+        }
+        symbolTable = SymbolTable.fromStatement(sourceBlockStatement);
+        root = createInvocationWithClosureRoot(sourceBlockStatement, symbolTable);
         invocationWithClosureList = root.getInternalInvocations();
         invocationWithMapList = root.getInternalMapInvocations();
         invocationWithStringList = root.getInternalStringInvocations();
+        unresolvedInvocationList = root.getInternalUnresolvedInvocations();
+    }
+
+    /**
+     * @return Invocation which represents the whole script, top level invocations are its internal invocations.
+     * It has no position, as the script isn't enclosed in braces.
+     */
+    public InvocationWithClosure getRootInvocation() {
+        return root;
     }
 
     public List<InvocationWithClosure> getInvocationsWithClosure() {
@@ -42,10 +78,24 @@ public class SimpleGroovyParser {
         return invocationWithStringList;
     }
 
-    static InvocationWithClosure createInvocationWithClosureRoot(String source) {
-        BlockStatement sourceBlockStatement = parseSource(source);
+    public List<UnresolvedInvocation> getUnresolvedInvocations() {
+        return unresolvedInvocationList;
+    }
+
+    public SymbolTable getSymbolTable() {
+        return symbolTable;
+    }
+
+    /**
+     * @return Fragments of source skipped in tolerant mode because of syntax errors, in strict mode always empty.
+     */
+    public List<ParseDiagnostic> getDiagnostics() {
+        return diagnostics;
+    }
+
+    static InvocationWithClosure createInvocationWithClosureRoot(BlockStatement sourceBlockStatement, SymbolTable symbolTable) {
         InvocationWithClosure root = new InvocationWithClosure("", 0, 0, 0, 0);
-        fillInvocationFromStatement(sourceBlockStatement, root);
+        fillInvocationFromStatement(sourceBlockStatement, root, symbolTable);
         return root;
     }
 
@@ -61,46 +111,59 @@ public class SimpleGroovyParser {
     /**
      * Goes through blockStatement recursively to create InvocationWithClosure tree.
      */
-    static void fillInvocationFromStatement(BlockStatement blockStatement, InvocationWithClosure node) {
+    static void fillInvocationFromStatement(BlockStatement blockStatement, InvocationWithClosure node, SymbolTable symbolTable) {
         for (Statement statement : blockStatement.getStatements()) {
-            processStatement(statement, node);
+            processStatement(statement, node, symbolTable);
         }
     }
 
-    static void processStatement(Statement statement, InvocationWithClosure node) {
+    static void processStatement(Statement statement, InvocationWithClosure node, SymbolTable symbolTable) {
         // If statement is an expression like function call
         if (statement instanceof ExpressionStatement) {
             Expression expression = ((ExpressionStatement) statement).getExpression();
             // If expression is method call
             if (expression instanceof MethodCallExpression) {
-                processMethodCallExpression(expression, node);
+                processMethodCallExpression(expression, node, symbolTable);
             }
         }
     }
 
-    static void processMethodCallExpression(Expression expression, InvocationWithClosure node) {
+    static void processMethodCallExpression(Expression expression, InvocationWithClosure node, SymbolTable symbolTable) {
         String methodName = ((MethodCallExpression) expression).getMethodAsString();
         int lineNumber = expression.getLineNumber();
         int columnNumber = expression.getColumnNumber();
         int lastLineNumber = expression.getLastLineNumber();
         int lastColumnNumber = expression.getLastColumnNumber();
         Expression argumentsExpression = ((MethodCallExpression) expression).getArguments();
-        // In case argument expression is string constant or closure
+        // In case there are no arguments, like: mavenCentral()
         if (argumentsExpression instanceof ArgumentListExpression &&
+                ((ArgumentListExpression) argumentsExpression).getExpressions().isEmpty()) {
+            InvocationWithoutArguments invocation = new InvocationWithoutArguments(methodName, lineNumber, columnNumber,
+                    lastLineNumber, lastColumnNumber);
+            node.getInternalInvocationsWithoutArguments().add(invocation);
+        }
+        // In case argument expression is string constant or closure
+        else if (argumentsExpression instanceof ArgumentListExpression &&
                 ((ArgumentListExpression) argumentsExpression).getExpressions().size() == 1) {
-            processArgumentListExpression((ArgumentListExpression) argumentsExpression, node,
+            processArgumentListExpression((ArgumentListExpression) argumentsExpression, node, symbolTable,
+                    methodName, lineNumber, columnNumber, lastLineNumber, lastColumnNumber);
+        }
+        // In case there are several arguments, like: include 'a', 'b'
+        else if (argumentsExpression instanceof ArgumentListExpression &&
+                ((ArgumentListExpression) argumentsExpression).getExpressions().size() > 1) {
+            processConstantArgumentsExpression((ArgumentListExpression) argumentsExpression, node, symbolTable,
                     methodName, lineNumber, columnNumber, lastLineNumber, lastColumnNumber);
         }
         // If argument expression is TupleExpression then it may be a map
         else if (argumentsExpression instanceof TupleExpression &&
                 ((TupleExpression) argumentsExpression).getExpressions().size() == 1) {
-            processTupleExpression((TupleExpression) argumentsExpression, node,
+            processTupleExpression((TupleExpression) argumentsExpression, node, symbolTable,
                     methodName, lineNumber, columnNumber, lastLineNumber, lastColumnNumber);
         }
     }
 
     static void processArgumentListExpression(ArgumentListExpression argumentsExpression, InvocationWithClosure node,
-                                              String methodName, int lineNumber, int columnNumber,
+                                              SymbolTable symbolTable, String methodName, int lineNumber, int columnNumber,
                                               int lastLineNumber, int lastColumnNumber) {
         Expression argumentExpression = ((ArgumentListExpression) argumentsExpression).getExpressions().get(0);
         // If argument is string constant
@@ -115,36 +178,93 @@ public class SimpleGroovyParser {
             BlockStatement blockStatement = (BlockStatement) ((ClosureExpression) argumentExpression).getCode();
             InvocationWithClosure invocation = new InvocationWithClosure(methodName, lineNumber, columnNumber,
                     lastLineNumber, lastColumnNumber);
-            fillInvocationFromStatement(blockStatement, invocation);
+            fillInvocationFromStatement(blockStatement, invocation, symbolTable);
             node.getInternalInvocations().add(invocation);
         }
+        // If argument may be evaluated to string, like: compile "com.foo:bar:$barVersion"
+        else if (!(argumentExpression instanceof MethodCallExpression)) {
+            List<String> unresolvedNames = new ArrayList<>();
+            Optional<String> string = symbolTable.resolve(argumentExpression, unresolvedNames);
+            if (string.isPresent()) {
+                InvocationWithString invocation = new InvocationWithString(methodName, string.get(), lineNumber, columnNumber,
+                        lastLineNumber, lastColumnNumber);
+                node.getInternalStringInvocations().add(invocation);
+            } else {
+                UnresolvedInvocation invocation = new UnresolvedInvocation(methodName, argumentExpression.getText(),
+                        unresolvedNames, lineNumber, columnNumber, lastLineNumber, lastColumnNumber);
+                node.getInternalUnresolvedInvocations().add(invocation);
+            }
+        }
+    }
+
+    /**
+     * Creates one string invocation per argument, all of them sharing position of the whole invocation.
+     * Arguments are processed only if every one of them can be evaluated to string.
+     */
+    static void processConstantArgumentsExpression(ArgumentListExpression argumentsExpression, InvocationWithClosure node,
+                                                   SymbolTable symbolTable, String methodName, int lineNumber, int columnNumber,
+                                                   int lastLineNumber, int lastColumnNumber) {
+        List<String> strings = new ArrayList<>();
+        List<String> unresolvedNames = new ArrayList<>();
+        for (Expression argumentExpression : argumentsExpression.getExpressions()) {
+            // Invocations with method calls or closures as arguments are not processed
+            if (argumentExpression instanceof MethodCallExpression || argumentExpression instanceof ClosureExpression) {
+                return;
+            }
+            Optional<String> string = symbolTable.resolve(argumentExpression, unresolvedNames);
+            if (string.isPresent()) {
+                strings.add(string.get());
+            }
+        }
+        if (!unresolvedNames.isEmpty()) {
+            UnresolvedInvocation invocation = new UnresolvedInvocation(methodName, argumentsExpression.getText(),
+                    unresolvedNames, lineNumber, columnNumber, lastLineNumber, lastColumnNumber);
+            node.getInternalUnresolvedInvocations().add(invocation);
+            return;
+        }
+        for (String string : strings) {
+            InvocationWithString invocation = new InvocationWithString(methodName, string, lineNumber, columnNumber,
+                    lastLineNumber, lastColumnNumber);
+            node.getInternalStringInvocations().add(invocation);
+        }
     }
 
     static void processTupleExpression(TupleExpression argumentsExpression, InvocationWithClosure node,
-                                       String methodName, int lineNumber, int columnNumber,
+                                       SymbolTable symbolTable, String methodName, int lineNumber, int columnNumber,
                                        int lastLineNumber, int lastColumnNumber) {
         Expression argumentExpression = ((TupleExpression) argumentsExpression).getExpressions().get(0);
         // In case argument expression is a map
         if (argumentExpression instanceof NamedArgumentListExpression) {
-            processNamedArgumentListExpression((NamedArgumentListExpression) argumentExpression, node,
+            processNamedArgumentListExpression((NamedArgumentListExpression) argumentExpression, node, symbolTable,
                     methodName, lineNumber, columnNumber, lastLineNumber, lastColumnNumber);
         }
     }
 
+    /**
+     * Map values are evaluated with symbol table, if any of them can't be evaluated whole invocation is unresolved.
+     */
     static void processNamedArgumentListExpression(NamedArgumentListExpression argumentListExpression, InvocationWithClosure node,
-                                                   String methodName, int lineNumber, int columnNumber,
+                                                   SymbolTable symbolTable, String methodName, int lineNumber, int columnNumber,
                                                    int lastLineNumber, int lastColumnNumber) {
         Map<String, String> parameters = new HashMap<>();
+        List<String> unresolvedNames = new ArrayList<>();
         for (MapEntryExpression mapEntryExpression : argumentListExpression.getMapEntryExpressions()) {
             Expression keyExpression = mapEntryExpression.getKeyExpression();
             Expression valueExpression = mapEntryExpression.getValueExpression();
-            if (keyExpression instanceof ConstantExpression &&
-                    valueExpression instanceof ConstantExpression) {
+            if (keyExpression instanceof ConstantExpression) {
                 String key = ((ConstantExpression) keyExpression).getValue().toString();
-                String value = ((ConstantExpression) valueExpression).getValue().toString();
-                parameters.put(key, value);
+                Optional<String> value = symbolTable.resolve(valueExpression, unresolvedNames);
+                if (value.isPresent()) {
+                    parameters.put(key, value.get());
+                }
             }
         }
+        if (!unresolvedNames.isEmpty()) {
+            UnresolvedInvocation invocation = new UnresolvedInvocation(methodName, argumentListExpression.getText(),
+                    unresolvedNames, lineNumber, columnNumber, lastLineNumber, lastColumnNumber);
+            node.getInternalUnresolvedInvocations().add(invocation);
+            return;
+        }
         InvocationWithMap invocation = new InvocationWithMap(methodName, parameters,
                 lineNumber, columnNumber, lastLineNumber, lastColumnNumber);
         node.getInternalMapInvocations().add(invocation);
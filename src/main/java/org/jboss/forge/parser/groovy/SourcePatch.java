@@ -0,0 +1,83 @@
+package org.jboss.forge.parser.groovy;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Represents a single text edit: at given offset deleteLength characters are replaced with insertText.
+ *
+ * @author Adam Wyłuda
+ */
+public class SourcePatch {
+
+    private final int offset;
+    private final int deleteLength;
+    private final String insertText;
+
+    public SourcePatch(int offset, int deleteLength, String insertText) {
+        checkArgument(offset >= 0, "Offset must not be negative");
+        checkArgument(deleteLength >= 0, "Delete length must not be negative");
+        this.offset = offset;
+        this.deleteLength = deleteLength;
+        this.insertText = checkNotNull(insertText);
+    }
+
+    public static SourcePatch insertion(int offset, String insertText) {
+        return new SourcePatch(offset, 0, insertText);
+    }
+
+    public static SourcePatch deletion(int offset, int deleteLength) {
+        return new SourcePatch(offset, deleteLength, "");
+    }
+
+    public int getOffset() {
+        return offset;
+    }
+
+    public int getDeleteLength() {
+        return deleteLength;
+    }
+
+    public String getInsertText() {
+        return insertText;
+    }
+
+    /**
+     * @return True if patch doesn't change length of the source.
+     */
+    public boolean isLengthPreserving() {
+        return deleteLength == insertText.length();
+    }
+
+    public String applyTo(String source) {
+        checkArgument(offset + deleteLength <= source.length(), "Patch exceeds source length");
+        return source.substring(0, offset) + insertText + source.substring(offset + deleteLength);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("@%d -%d +'%s'", offset, deleteLength, insertText);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+
+        SourcePatch that = (SourcePatch) o;
+
+        if (deleteLength != that.deleteLength) return false;
+        if (offset != that.offset) return false;
+        if (!insertText.equals(that.insertText)) return false;
+
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        int result = offset;
+        result = 31 * result + deleteLength;
+        result = 31 * result + insertText.hashCode();
+        return result;
+    }
+}
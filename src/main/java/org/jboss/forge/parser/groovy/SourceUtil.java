@@ -1,5 +1,7 @@
 package org.jboss.forge.parser.groovy;
 
+import java.util.List;
+
 import static com.google.common.base.Preconditions.*;
 
 /**
@@ -53,4 +55,82 @@ public class SourceUtil {
         int endingPosition = positionInSource(source, lastLineNumber, lastColumnNumber);
         return source.substring(0, begginingPosition) + source.substring(endingPosition);
     }
+
+    /**
+     * Applies patches one after another, so offset of each patch refers to the source modified by preceding patches.
+     */
+    public static String applyPatches(String source, List<SourcePatch> patches) {
+        StringBuilder builder = new StringBuilder(source);
+        for (SourcePatch patch : patches) {
+            int endPosition = patch.getOffset() + patch.getDeleteLength();
+            checkArgument(endPosition <= builder.length(), "Patch exceeds source length");
+            builder.replace(patch.getOffset(), endPosition, patch.getInsertText());
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Checks that brackets of the source are balanced and its strings and comments are closed, without loading
+     * the groovy parser. Slashy strings are not recognized, brackets inside them are counted.
+     *
+     * @return False if the source certainly has a syntax error which spans the rest of it.
+     */
+    public static boolean hasBalancedBrackets(String source) {
+        StringBuilder openBrackets = new StringBuilder();
+        int index = 0;
+        while (index < source.length()) {
+            char character = source.charAt(index);
+            if (source.startsWith("//", index)) {
+                int lineEnd = source.indexOf('\n', index);
+                index = lineEnd >= 0 ? lineEnd : source.length();
+            } else if (source.startsWith("/*", index)) {
+                int commentEnd = source.indexOf("*/", index + 2);
+                if (commentEnd < 0) {
+                    return false;
+                }
+                index = commentEnd + 2;
+            } else if (character == '\'' || character == '"') {
+                index = stringEnd(source, index);
+                if (index < 0) {
+                    return false;
+                }
+            } else {
+                int bracket = "([{".indexOf(character);
+                if (bracket >= 0) {
+                    openBrackets.append(")]}".charAt(bracket));
+                } else if (")]}".indexOf(character) >= 0) {
+                    int last = openBrackets.length() - 1;
+                    if (last < 0 || openBrackets.charAt(last) != character) {
+                        return false;
+                    }
+                    openBrackets.setLength(last);
+                }
+                index++;
+            }
+        }
+        return openBrackets.length() == 0;
+    }
+
+    /**
+     * @return Index after the string literal starting at given index, or -1 if it's not closed.
+     */
+    static int stringEnd(String source, int index) {
+        char quote = source.charAt(index);
+        String tripleQuote = new String(new char[]{quote, quote, quote});
+        boolean multiline = source.startsWith(tripleQuote, index);
+        index += multiline ? 3 : 1;
+        while (index < source.length()) {
+            char character = source.charAt(index);
+            if (character == '\\') {
+                index += 2;
+            } else if (multiline ? source.startsWith(tripleQuote, index) : character == quote) {
+                return index + (multiline ? 3 : 1);
+            } else if (!multiline && character == '\n') {
+                return -1;
+            } else {
+                index++;
+            }
+        }
+        return -1;
+    }
 }
@@ -0,0 +1,326 @@
+package org.jboss.forge.parser.groovy;
+
+import com.google.common.base.Optional;
+import org.codehaus.groovy.ast.expr.*;
+import org.codehaus.groovy.ast.stmt.BlockStatement;
+import org.codehaus.groovy.ast.stmt.ExpressionStatement;
+import org.codehaus.groovy.ast.stmt.Statement;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Values of extra properties and variables defined in the build script, like:
+ * <pre>
+ * ext { springVersion = '3.2.3.RELEASE' }
+ * ext.libraries = [guava: 'com.google.guava:guava:14.0.1']
+ * def junitVersion = '4.11'
+ * </pre>
+ * Definitions are kept as expressions and evaluated only when they are referenced, every value is evaluated
+ * at most once. Maps are flattened, so entry of the libraries map above is available as "libraries.guava".
+ * <p/>
+ * Symbol may be defined more than once, reference is resolved with the last definition which precedes it
+ * in the source, the same as the script is executed. Extra properties defined in subprojects closure belong
+ * to subprojects, so they are not collected, while allprojects closure defines them also for the project itself.
+ *
+ * @author Adam Wyłuda
+ */
+public class SymbolTable {
+
+    public static final String EXT = "ext";
+    public static final String SUBPROJECTS = "subprojects";
+
+    // References to extra properties of the project itself can be written in several ways
+    private static final String[] PROJECT_PREFIXES = {"project.ext.", "ext.", "project."};
+
+    // Definitions without position, like the ones made by the API, precede any reference
+    private static final long FIRST_POSITION = Long.MIN_VALUE;
+    // Reference without position is resolved with the last definition of the script
+    private static final long LAST_POSITION = Long.MAX_VALUE;
+
+    private final Map<String, List<Definition>> definitions = new HashMap<>();
+    private final Map<Definition, Optional<String>> values = new HashMap<>();
+    private final Set<Definition> definitionsInEvaluation = new HashSet<>();
+
+    /**
+     * Collects variables defined at the top level of the script and extra properties defined at any level
+     * except for subprojects closure.
+     */
+    public static SymbolTable fromStatement(BlockStatement blockStatement) {
+        SymbolTable symbolTable = new SymbolTable();
+        symbolTable.collectDefinitions(blockStatement, true);
+        return symbolTable;
+    }
+
+    public boolean isDefined(String name) {
+        return definitions.containsKey(name);
+    }
+
+    /**
+     * Defines symbol with given name at position of the expression, map values are also defined entry by entry.
+     * Values evaluated so far may depend on the symbol, so all of them are evaluated again when needed.
+     */
+    public void define(String name, Expression expression) {
+        define(name, expression, definitionPosition(expression));
+    }
+
+    void define(String name, Expression expression, long position) {
+        List<Definition> nameDefinitions = definitions.get(name);
+        if (nameDefinitions == null) {
+            nameDefinitions = new ArrayList<>(1);
+            definitions.put(name, nameDefinitions);
+        }
+        // Definitions are kept in source order, definition made later at the same position hides earlier ones
+        int index = nameDefinitions.size();
+        while (index > 0 && nameDefinitions.get(index - 1).position > position) {
+            index--;
+        }
+        nameDefinitions.add(index, new Definition(expression, position));
+        values.clear();
+        if (expression instanceof MapExpression) {
+            for (MapEntryExpression entryExpression : ((MapExpression) expression).getMapEntryExpressions()) {
+                if (entryExpression.getKeyExpression() instanceof ConstantExpression) {
+                    String key = ((ConstantExpression) entryExpression.getKeyExpression()).getValue().toString();
+                    define(name + "." + key, entryExpression.getValueExpression(), position);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return Value of the last definition of the symbol, or absent if it's not defined or can't be evaluated.
+     */
+    public Optional<String> lookup(String name) {
+        return lookup(name, LAST_POSITION);
+    }
+
+    /**
+     * @return Value of the last definition of the symbol before given position.
+     */
+    Optional<String> lookup(String name, long position) {
+        Definition definition = definitionBefore(normalizeName(name), position);
+        if (definition == null) {
+            return Optional.absent();
+        }
+        Optional<String> value = values.get(definition);
+        if (value != null) {
+            return value;
+        }
+        // Symbol which refers to itself, directly or not, can't be evaluated
+        if (!definitionsInEvaluation.add(definition)) {
+            return Optional.absent();
+        }
+        try {
+            // References in the definition precede it, so redefinition like: version = version + '-SNAPSHOT'
+            // refers to the previous definition
+            long referencePosition = definition.position != FIRST_POSITION ? definition.position : LAST_POSITION;
+            value = resolve(definition.expression, referencePosition, null);
+        } finally {
+            definitionsInEvaluation.remove(definition);
+        }
+        values.put(definition, value);
+        return value;
+    }
+
+    Definition definitionBefore(String name, long position) {
+        List<Definition> nameDefinitions = definitions.get(name);
+        if (nameDefinitions == null) {
+            return null;
+        }
+        for (int index = nameDefinitions.size() - 1; index >= 0; index--) {
+            if (nameDefinitions.get(index).position < position) {
+                return nameDefinitions.get(index);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Evaluates string value of expression built from constants, interpolated strings, concatenations
+     * and references to symbols.
+     *
+     * @return Value of the expression, or absent if it can't be evaluated.
+     */
+    public Optional<String> resolve(Expression expression) {
+        return resolve(expression, null);
+    }
+
+    /**
+     * @param unresolvedNames If not null, collects names of symbols which couldn't be evaluated,
+     *                        or text of expressions which aren't supported.
+     */
+    public Optional<String> resolve(Expression expression, Collection<String> unresolvedNames) {
+        return resolve(expression, referencePosition(expression), unresolvedNames);
+    }
+
+    /**
+     * @param position Position of the reference, symbols are resolved with definitions which precede it.
+     */
+    Optional<String> resolve(Expression expression, long position, Collection<String> unresolvedNames) {
+        if (expression instanceof ConstantExpression) {
+            Object value = ((ConstantExpression) expression).getValue();
+            return value != null ? Optional.of(value.toString()) : unresolved(expression.getText(), unresolvedNames);
+        }
+        if (expression instanceof GStringExpression) {
+            return resolveGString((GStringExpression) expression, position, unresolvedNames);
+        }
+        if (expression instanceof BinaryExpression && "+".equals(((BinaryExpression) expression).getOperation().getText())) {
+            Optional<String> left = resolve(((BinaryExpression) expression).getLeftExpression(), position, unresolvedNames);
+            Optional<String> right = resolve(((BinaryExpression) expression).getRightExpression(), position, unresolvedNames);
+            return left.isPresent() && right.isPresent() ? Optional.of(left.get() + right.get()) : Optional.<String>absent();
+        }
+        String name = referenceName(expression);
+        if (name != null) {
+            Optional<String> value = lookup(name, position);
+            return value.isPresent() ? value : unresolved(name, unresolvedNames);
+        }
+        return unresolved(expression.getText(), unresolvedNames);
+    }
+
+    Optional<String> resolveGString(GStringExpression expression, long position, Collection<String> unresolvedNames) {
+        List<ConstantExpression> strings = expression.getStrings();
+        List<Expression> valueExpressions = expression.getValues();
+        StringBuilder builder = new StringBuilder();
+        boolean resolved = true;
+        // Constant parts and values are interleaved, starting with a constant part
+        for (int index = 0; index < strings.size() || index < valueExpressions.size(); index++) {
+            if (index < strings.size()) {
+                builder.append(strings.get(index).getValue());
+            }
+            if (index < valueExpressions.size()) {
+                Optional<String> value = resolve(valueExpressions.get(index), position, unresolvedNames);
+                resolved &= value.isPresent();
+                builder.append(value.or(""));
+            }
+        }
+        return resolved ? Optional.of(builder.toString()) : Optional.<String>absent();
+    }
+
+    void collectDefinitions(BlockStatement blockStatement, boolean variablesVisible) {
+        for (Statement statement : blockStatement.getStatements()) {
+            if (!(statement instanceof ExpressionStatement)) {
+                continue;
+            }
+            Expression expression = ((ExpressionStatement) statement).getExpression();
+            // Local variable, like: def version = '1.0'
+            if (expression instanceof DeclarationExpression) {
+                DeclarationExpression declaration = (DeclarationExpression) expression;
+                if (variablesVisible && !declaration.isMultipleAssignmentDeclaration()) {
+                    define(declaration.getVariableExpression().getName(), declaration.getRightExpression(),
+                            definitionPosition(declaration));
+                }
+            }
+            // Assignment, like: ext.version = '1.0' or version = '1.0' at the top level
+            else if (expression instanceof BinaryExpression) {
+                collectAssignment((BinaryExpression) expression, variablesVisible);
+            }
+            // Extra properties block, like: ext { version = '1.0' }, or any other closure which may contain one
+            else if (expression instanceof MethodCallExpression) {
+                MethodCallExpression methodCall = (MethodCallExpression) expression;
+                BlockStatement closureBlock = closureArgument(methodCall);
+                if (closureBlock != null && !SUBPROJECTS.equals(methodCall.getMethodAsString())) {
+                    collectDefinitions(closureBlock, EXT.equals(methodCall.getMethodAsString()));
+                }
+            }
+        }
+    }
+
+    void collectAssignment(BinaryExpression expression, boolean variablesVisible) {
+        if (!"=".equals(expression.getOperation().getText())) {
+            return;
+        }
+        Expression leftExpression = expression.getLeftExpression();
+        String name = referenceName(leftExpression);
+        if (name == null) {
+            return;
+        }
+        if (leftExpression instanceof VariableExpression ? variablesVisible : isExtraProperty(name)) {
+            define(normalizeName(name), expression.getRightExpression(), definitionPosition(expression));
+        }
+    }
+
+    static long definitionPosition(Expression expression) {
+        return expression.getLineNumber() > 0 ? position(expression) : FIRST_POSITION;
+    }
+
+    static long referencePosition(Expression expression) {
+        return expression.getLineNumber() > 0 ? position(expression) : LAST_POSITION;
+    }
+
+    static long position(Expression expression) {
+        return ((long) expression.getLineNumber() << 32) | expression.getColumnNumber();
+    }
+
+    static BlockStatement closureArgument(MethodCallExpression methodCall) {
+        Expression arguments = methodCall.getArguments();
+        if (arguments instanceof ArgumentListExpression) {
+            List<Expression> expressions = ((ArgumentListExpression) arguments).getExpressions();
+            if (expressions.size() == 1 && expressions.get(0) instanceof ClosureExpression) {
+                return (BlockStatement) ((ClosureExpression) expressions.get(0)).getCode();
+            }
+        }
+        return null;
+    }
+
+    static boolean isExtraProperty(String name) {
+        return name.startsWith("ext.") || name.startsWith("project.ext.");
+    }
+
+    /**
+     * Returns dotted name of a reference, like "libraries.guava" for libraries.guava or libraries['guava'],
+     * or null if expression isn't a plain reference.
+     */
+    static String referenceName(Expression expression) {
+        if (expression instanceof VariableExpression) {
+            return ((VariableExpression) expression).getName();
+        }
+        if (expression instanceof PropertyExpression) {
+            PropertyExpression propertyExpression = (PropertyExpression) expression;
+            String objectName = referenceName(propertyExpression.getObjectExpression());
+            String property = propertyExpression.getPropertyAsString();
+            return objectName != null && property != null ? objectName + "." + property : null;
+        }
+        if (expression instanceof BinaryExpression && "[".equals(((BinaryExpression) expression).getOperation().getText()) &&
+                ((BinaryExpression) expression).getRightExpression() instanceof ConstantExpression) {
+            String objectName = referenceName(((BinaryExpression) expression).getLeftExpression());
+            Object key = ((ConstantExpression) ((BinaryExpression) expression).getRightExpression()).getValue();
+            return objectName != null && key != null ? objectName + "." + key : null;
+        }
+        return null;
+    }
+
+    static String normalizeName(String name) {
+        for (String prefix : PROJECT_PREFIXES) {
+            if (name.startsWith(prefix)) {
+                return name.substring(prefix.length());
+            }
+        }
+        return name;
+    }
+
+    static Optional<String> unresolved(String name, Collection<String> unresolvedNames) {
+        if (unresolvedNames != null) {
+            unresolvedNames.add(name);
+        }
+        return Optional.absent();
+    }
+
+    /**
+     * Single definition of a symbol, compared by identity, as the same expression may be defined more than once.
+     */
+    static class Definition {
+
+        private final Expression expression;
+        private final long position;
+
+        Definition(Expression expression, long position) {
+            this.expression = expression;
+            this.position = position;
+        }
+    }
+}
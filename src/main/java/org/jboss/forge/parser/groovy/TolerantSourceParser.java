@@ -0,0 +1,337 @@
+package org.jboss.forge.parser.groovy;
+
+import org.codehaus.groovy.ast.stmt.BlockStatement;
+import org.codehaus.groovy.control.CompilationFailedException;
+import org.codehaus.groovy.control.MultipleCompilationErrorsException;
+import org.codehaus.groovy.syntax.SyntaxException;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Parses source which may contain syntax errors.
+ * <p/>
+ * Source without errors is parsed once. Otherwise it's split into statements with a simple lexer, which is aware
+ * of strings, comments and brackets, and statements which don't parse are found by bisection. If a failing statement
+ * is an invocation with a closure, statements of the closure are checked the same way, so a single broken line
+ * doesn't hide the rest of its block. Statement with an unclosed bracket runs to the end of source, if it fails
+ * it's split again at the next line which starts a top level statement or closes a block at the first column.
+ * Failing fragments are replaced with spaces, which keeps positions of all other elements, and reported as
+ * {@link ParseDiagnostic}.
+ *
+ * @author Adam Wyłuda
+ */
+class TolerantSourceParser {
+
+    // Line ending with one of these characters is continued in the next line
+    private static final String CONTINUATION_CHARACTERS = ",+-*/=.([{:?&|";
+    // Line which starts with one of these words at the first column most likely starts a top level statement
+    private static final String[] TOP_LEVEL_KEYWORDS = {"allprojects", "apply", "artifacts", "buildscript",
+            "configurations", "configure", "def", "dependencies", "ext", "group", "import", "plugins", "project",
+            "repositories", "sourceSets", "subprojects", "task", "version"};
+
+    private final String source;
+    private final char[] text;
+    private final List<Integer> lineStarts = new ArrayList<>();
+    private final List<ParseDiagnostic> diagnostics = new ArrayList<>();
+
+    TolerantSourceParser(String source) {
+        this.source = source;
+        this.text = source.toCharArray();
+        lineStarts.add(0);
+        for (int index = 0; index < text.length; index++) {
+            if (text[index] == '\n') {
+                lineStarts.add(index + 1);
+            }
+        }
+    }
+
+    BlockStatement parse() {
+        try {
+            return SimpleGroovyParser.parseSource(source);
+        } catch (CompilationFailedException e) {
+            recoverFailing(statements(0, text.length), errorMessage(e));
+        }
+        try {
+            return SimpleGroovyParser.parseSource(new String(text));
+        } catch (CompilationFailedException e) {
+            // Error depends on several statements together, so it can't be isolated
+            diagnostics.clear();
+            diagnostics.add(diagnostic(errorMessage(e), 0, text.length));
+            return new BlockStatement();
+        }
+    }
+
+    List<ParseDiagnostic> getDiagnostics() {
+        return diagnostics;
+    }
+
+    void recover(List<Segment> segments) {
+        if (segments.isEmpty()) {
+            return;
+        }
+        String message = parseError(segments);
+        if (message != null) {
+            recoverFailing(segments, message);
+        }
+    }
+
+    void recoverFailing(List<Segment> segments, String message) {
+        if (segments.size() > 1) {
+            int middle = segments.size() / 2;
+            recover(segments.subList(0, middle));
+            recover(segments.subList(middle, segments.size()));
+            return;
+        }
+        Segment segment = segments.get(0);
+        // Statement with an unclosed bracket would hide all statements after it
+        if (segment.unterminated) {
+            int resynchronization = resynchronization(segment);
+            if (resynchronization >= 0) {
+                recover(statements(segment.start, resynchronization));
+                recover(statements(resynchronization, segment.end));
+                return;
+            }
+        }
+        // Closure body is recovered first, if it was the only problem the rest of the statement is kept
+        if (segment.bodyStart >= 0) {
+            recover(statements(segment.bodyStart, segment.bodyEnd));
+            if (parseError(segments) == null) {
+                return;
+            }
+        }
+        skip(segment, message);
+    }
+
+    /**
+     * Finds the first line inside the segment, which starts at the first column with a top level keyword
+     * or with a closing brace.
+     *
+     * @return Index where statements following the broken one start, or -1 if there is none.
+     */
+    int resynchronization(Segment segment) {
+        for (int line = lineIndex(segment.start) + 1; line < lineStarts.size(); line++) {
+            int lineStart = lineStarts.get(line);
+            if (lineStart >= segment.end) {
+                break;
+            }
+            // Brace closes the broken block, so it belongs to the broken statement
+            if (text[lineStart] == '}') {
+                if (lineStart + 1 < segment.end) {
+                    return lineStart + 1;
+                }
+            } else if (startsWithKeyword(lineStart, segment.end)) {
+                return lineStart;
+            }
+        }
+        return -1;
+    }
+
+    boolean startsWithKeyword(int index, int to) {
+        for (String keyword : TOP_LEVEL_KEYWORDS) {
+            int keywordEnd = index + keyword.length();
+            if (startsWith(index, to, keyword) &&
+                    (keywordEnd == to || !Character.isJavaIdentifierPart(text[keywordEnd]))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return Message of the first syntax error, or null if statements parse correctly.
+     */
+    String parseError(List<Segment> segments) {
+        StringBuilder builder = new StringBuilder();
+        for (Segment segment : segments) {
+            builder.append(text, segment.start, segment.end - segment.start).append('\n');
+        }
+        try {
+            SimpleGroovyParser.parseSource(builder.toString());
+            return null;
+        } catch (CompilationFailedException e) {
+            return errorMessage(e);
+        }
+    }
+
+    static String errorMessage(CompilationFailedException exception) {
+        if (exception instanceof MultipleCompilationErrorsException) {
+            SyntaxException syntaxException = ((MultipleCompilationErrorsException) exception).getErrorCollector().getSyntaxError(0);
+            if (syntaxException != null) {
+                return syntaxException.getOriginalMessage();
+            }
+        }
+        return exception.getMessage();
+    }
+
+    void skip(Segment segment, String message) {
+        for (int index = segment.start; index < segment.end; index++) {
+            if (text[index] != '\n' && text[index] != '\r') {
+                text[index] = ' ';
+            }
+        }
+        diagnostics.add(diagnostic(message, segment.start, segment.end));
+    }
+
+    ParseDiagnostic diagnostic(String message, int start, int end) {
+        int line = lineIndex(start);
+        int lastLine = lineIndex(end);
+        return new ParseDiagnostic(message, line + 1, start - lineStarts.get(line) + 1,
+                lastLine + 1, end - lineStarts.get(lastLine) + 1);
+    }
+
+    int lineIndex(int offset) {
+        int index = Collections.binarySearch(lineStarts, offset);
+        return index >= 0 ? index : -index - 2;
+    }
+
+    /**
+     * Splits given range of the text into statements, separated with new lines or semicolons outside of brackets.
+     */
+    List<Segment> statements(int from, int to) {
+        List<Segment> segments = new ArrayList<>();
+        Segment segment = null;
+        int depth = 0;
+        int lastSignificant = -1;
+        int index = from;
+        while (index < to) {
+            char character = text[index];
+            if (character == ';' || character == '\n') {
+                if (segment != null && depth == 0 && (character == ';' || !continues(lastSignificant, index, to))) {
+                    segments.add(segment.end(lastSignificant + 1));
+                    segment = null;
+                }
+                index++;
+            } else if (Character.isWhitespace(character)) {
+                index++;
+            } else if (startsWith(index, to, "//")) {
+                index = skipLine(index, to);
+            } else if (startsWith(index, to, "/*")) {
+                int commentEnd = indexOf("*/", index + 2, to);
+                index = commentEnd >= 0 ? commentEnd + 2 : to;
+            } else {
+                if (segment == null) {
+                    segment = new Segment(index);
+                }
+                if (character == '\'' || character == '"') {
+                    index = skipString(index, to);
+                } else {
+                    depth = segment.bracket(character, index, depth);
+                    index++;
+                }
+                lastSignificant = index - 1;
+            }
+        }
+        if (segment != null) {
+            segment.unterminated = depth > 0;
+            segments.add(segment.end(lastSignificant + 1));
+        }
+        return segments;
+    }
+
+    boolean continues(int lastSignificant, int lineEnd, int to) {
+        if (CONTINUATION_CHARACTERS.indexOf(text[lastSignificant]) >= 0) {
+            return true;
+        }
+        // Method chain continued in the next line, like: .exclude(...)
+        int index = lineEnd + 1;
+        while (index < to && Character.isWhitespace(text[index])) {
+            index++;
+        }
+        return startsWith(index, to, ".") || startsWith(index, to, "?.");
+    }
+
+    /**
+     * @return Index after the end of string literal, or the end of line if single line string isn't terminated.
+     */
+    int skipString(int index, int to) {
+        char quote = text[index];
+        String tripleQuote = new String(new char[]{quote, quote, quote});
+        if (startsWith(index, to, tripleQuote)) {
+            int stringEnd = indexOf(tripleQuote, index + 3, to);
+            return stringEnd >= 0 ? stringEnd + 3 : to;
+        }
+        index++;
+        while (index < to && text[index] != '\n') {
+            if (text[index] == '\\') {
+                index += 2;
+            } else if (text[index++] == quote) {
+                return index;
+            }
+        }
+        return Math.min(index, to);
+    }
+
+    int skipLine(int index, int to) {
+        while (index < to && text[index] != '\n') {
+            index++;
+        }
+        return index;
+    }
+
+    boolean startsWith(int index, int to, String prefix) {
+        if (index + prefix.length() > to) {
+            return false;
+        }
+        for (int offset = 0; offset < prefix.length(); offset++) {
+            if (text[index + offset] != prefix.charAt(offset)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    int indexOf(String string, int from, int to) {
+        for (int index = from; index + string.length() <= to; index++) {
+            if (startsWith(index, to, string)) {
+                return index;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Range of a single statement, with range of body of its first closure, if there is one.
+     */
+    static class Segment {
+
+        private final int start;
+        private int end;
+        private int bodyStart = -1;
+        private int bodyEnd = -1;
+        private int openingBrace = -1;
+        // Bracket of the statement isn't closed until the end of the split range
+        private boolean unterminated;
+
+        Segment(int start) {
+            this.start = start;
+        }
+
+        /**
+         * @return Bracket depth after given character.
+         */
+        int bracket(char character, int index, int depth) {
+            if (character == '(' || character == '[' || character == '{') {
+                if (character == '{' && depth == 0 && openingBrace < 0) {
+                    openingBrace = index;
+                }
+                return depth + 1;
+            }
+            if (character == ')' || character == ']' || character == '}') {
+                if (character == '}' && depth == 1 && openingBrace >= 0 && bodyEnd < 0) {
+                    bodyStart = openingBrace + 1;
+                    bodyEnd = index;
+                }
+                // Unbalanced closing bracket stays in the statement, which will fail to parse
+                return Math.max(depth - 1, 0);
+            }
+            return depth;
+        }
+
+        Segment end(int end) {
+            this.end = end;
+            return this;
+        }
+    }
+}
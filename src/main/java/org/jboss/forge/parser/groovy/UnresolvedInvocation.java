@@ -0,0 +1,48 @@
+package org.jboss.forge.parser.groovy;
+
+import java.util.List;
+
+/**
+ * Represents invocation of a method with arguments which couldn't be evaluated to strings, like:
+ * compile "com.foo:bar:$barVersion" when barVersion isn't defined in the script.
+ *
+ * @author Adam Wyłuda
+ */
+public class UnresolvedInvocation extends SourceCodeElement {
+
+    private final String methodName;
+    private final String argumentsText;
+    private final List<String> unresolvedNames;
+
+    public UnresolvedInvocation(String methodName, String argumentsText, List<String> unresolvedNames,
+                                int lineNumber, int columnNumber, int lastLineNumber, int lastColumnNumber) {
+        super(lineNumber, columnNumber, lastLineNumber, lastColumnNumber);
+        this.methodName = methodName;
+        this.argumentsText = argumentsText;
+        this.unresolvedNames = unresolvedNames;
+    }
+
+    public String getMethodName() {
+        return methodName;
+    }
+
+    /**
+     * @return Arguments as they were written in the source.
+     */
+    public String getArgumentsText() {
+        return argumentsText;
+    }
+
+    /**
+     * @return Names of symbols which couldn't be evaluated, or text of expressions which aren't supported.
+     */
+    public List<String> getUnresolvedNames() {
+        return unresolvedNames;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s %s at %d:%d, unresolved: %s", methodName, argumentsText,
+                getLineNumber(), getColumnNumber(), unresolvedNames);
+    }
+}
@@ -0,0 +1,296 @@
+package org.jboss.forge.project;
+
+import com.google.common.base.Function;
+import com.google.common.io.Files;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.SettableFuture;
+import org.jboss.forge.parser.groovy.SourcePatch;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Asynchronous access to gradle projects, for callers which can't block on parsing or file I/O.
+ * Parsing and editing run on the parse executor, reading and writing files run on the I/O executor.
+ * Concurrent loads of the same file share a single read and parse.
+ * <p/>
+ * GradleProject is not thread safe, so operations on a single project (queries, edits and saves of its source)
+ * run one after another in order in which they were submitted, so a save writes all edits submitted before it.
+ * When a bounded executor is full, returned future fails with RejectedExecutionException, methods never throw it.
+ *
+ * @author Adam Wyłuda
+ */
+public class AsyncGradleProjects {
+
+    private static final Executor DIRECT_EXECUTOR = new Executor() {
+        @Override
+        public void execute(Runnable command) {
+            command.run();
+        }
+    };
+
+    private final ListeningExecutorService parseExecutor;
+    private final ListeningExecutorService ioExecutor;
+    private final Charset charset;
+    private final Map<File, ListenableFuture<GradleProject>> inFlightLoads = new HashMap<>();
+    private final Map<GradleProject, ListenableFuture<?>> lastOperations = new HashMap<>();
+
+    /**
+     * Creates executors with fixed count of threads and bounded task queues.
+     */
+    public AsyncGradleProjects(int parseThreads, int ioThreads, int queueSize) {
+        this(MoreExecutors.listeningDecorator(boundedExecutor(parseThreads, queueSize)),
+                MoreExecutors.listeningDecorator(boundedExecutor(ioThreads, queueSize)),
+                Charset.defaultCharset());
+    }
+
+    public AsyncGradleProjects(ListeningExecutorService parseExecutor, ListeningExecutorService ioExecutor,
+                               Charset charset) {
+        this.parseExecutor = parseExecutor;
+        this.ioExecutor = ioExecutor;
+        this.charset = charset;
+    }
+
+    /**
+     * Reads and parses build file. If the same file is already being loaded, future of that load is returned.
+     */
+    public ListenableFuture<GradleProject> load(File buildFile) {
+        final File key = buildFile.getAbsoluteFile();
+        final ListenableFuture<GradleProject> future;
+        synchronized (inFlightLoads) {
+            ListenableFuture<GradleProject> inFlightLoad = inFlightLoads.get(key);
+            if (inFlightLoad != null) {
+                return inFlightLoad;
+            }
+            future = startLoad(key);
+            // Load rejected by the executor is already failed, so it's not shared
+            if (future.isDone()) {
+                return future;
+            }
+            inFlightLoads.put(key, future);
+        }
+        future.addListener(new Runnable() {
+            @Override
+            public void run() {
+                synchronized (inFlightLoads) {
+                    if (inFlightLoads.get(key) == future) {
+                        inFlightLoads.remove(key);
+                    }
+                }
+            }
+        }, DIRECT_EXECUTOR);
+        return future;
+    }
+
+    public ListenableFuture<List<Dependency>> getDependencies(GradleProject project) {
+        return query(project, new Function<GradleProject, List<Dependency>>() {
+            @Override
+            public List<Dependency> apply(GradleProject project) {
+                return project.getDependencies();
+            }
+        });
+    }
+
+    public <T> ListenableFuture<T> query(GradleProject project, Function<GradleProject, T> query) {
+        return submitInOrder(parseExecutor, project, query);
+    }
+
+    public ListenableFuture<List<SourcePatch>> addDependency(GradleProject project, final Dependency dependency) {
+        return edit(project, new Function<GradleProject, List<SourcePatch>>() {
+            @Override
+            public List<SourcePatch> apply(GradleProject project) {
+                return project.addDependency(dependency);
+            }
+        });
+    }
+
+    public ListenableFuture<List<SourcePatch>> removeDependency(GradleProject project, final Dependency dependency) {
+        return edit(project, new Function<GradleProject, List<SourcePatch>>() {
+            @Override
+            public List<SourcePatch> apply(GradleProject project) {
+                return project.removeDependency(dependency);
+            }
+        });
+    }
+
+    public <T> ListenableFuture<T> edit(GradleProject project, Function<GradleProject, T> edit) {
+        return submitInOrder(parseExecutor, project, edit);
+    }
+
+    /**
+     * Rewrites build file with source of the project, after all operations on the project submitted before.
+     */
+    public ListenableFuture<GradleProject> save(final File buildFile, GradleProject project) {
+        return submitInOrder(ioExecutor, project, new Function<GradleProject, GradleProject>() {
+            @Override
+            public GradleProject apply(GradleProject project) {
+                try {
+                    new SourceFileWriter(buildFile, charset).write(project.getSource());
+                } catch (IOException exception) {
+                    throw new SaveException(exception);
+                }
+                return project;
+            }
+        });
+    }
+
+    /**
+     * Writes patches made to the source which is currently stored in the build file.
+     */
+    public ListenableFuture<File> save(final File buildFile, final String originalSource, final List<SourcePatch> patches) {
+        return submit(ioExecutor, new Callable<File>() {
+            @Override
+            public File call() throws IOException {
+                new SourceFileWriter(buildFile, charset).write(originalSource, patches);
+                return buildFile;
+            }
+        });
+    }
+
+    public void shutdown() {
+        parseExecutor.shutdown();
+        ioExecutor.shutdown();
+    }
+
+    ListenableFuture<GradleProject> startLoad(final File buildFile) {
+        final SettableFuture<GradleProject> result = SettableFuture.create();
+        final ListenableFuture<String> sourceFuture = submit(ioExecutor, new Callable<String>() {
+            @Override
+            public String call() throws IOException {
+                return Files.toString(buildFile, charset);
+            }
+        });
+        // Parsing is scheduled by hand, so that rejection by the parse executor also completes the result
+        sourceFuture.addListener(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    final String source = sourceFuture.get();
+                    parseExecutor.execute(new Runnable() {
+                        @Override
+                        public void run() {
+                            try {
+                                GradleProject project = new GradleProject(source);
+                                project.getParser();
+                                result.set(project);
+                            } catch (Throwable throwable) {
+                                result.setException(throwable);
+                            }
+                        }
+                    });
+                } catch (ExecutionException exception) {
+                    result.setException(exception.getCause());
+                } catch (Throwable throwable) {
+                    result.setException(throwable);
+                }
+            }
+        }, DIRECT_EXECUTOR);
+        return result;
+    }
+
+    /**
+     * Submits function of the project when all operations on the project submitted before have completed,
+     * successfully or not.
+     */
+    <T> ListenableFuture<T> submitInOrder(final ListeningExecutorService executor, final GradleProject project,
+                                          final Function<GradleProject, T> function) {
+        final SettableFuture<T> result = SettableFuture.create();
+        ListenableFuture<?> previousOperation;
+        synchronized (lastOperations) {
+            previousOperation = lastOperations.get(project);
+            lastOperations.put(project, result);
+        }
+        Runnable start = new Runnable() {
+            @Override
+            public void run() {
+                final ListenableFuture<T> future = submit(executor, new Callable<T>() {
+                    @Override
+                    public T call() throws IOException {
+                        synchronized (project) {
+                            try {
+                                return function.apply(project);
+                            } catch (SaveException exception) {
+                                throw exception.getCause();
+                            }
+                        }
+                    }
+                });
+                future.addListener(new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            result.set(future.get());
+                        } catch (ExecutionException exception) {
+                            result.setException(exception.getCause());
+                        } catch (Throwable throwable) {
+                            result.setException(throwable);
+                        }
+                    }
+                }, DIRECT_EXECUTOR);
+            }
+        };
+        if (previousOperation != null) {
+            previousOperation.addListener(start, DIRECT_EXECUTOR);
+        } else {
+            start.run();
+        }
+        result.addListener(new Runnable() {
+            @Override
+            public void run() {
+                synchronized (lastOperations) {
+                    if (lastOperations.get(project) == result) {
+                        lastOperations.remove(project);
+                    }
+                }
+            }
+        }, DIRECT_EXECUTOR);
+        return result;
+    }
+
+    /**
+     * Submits task, if the executor rejects it returned future fails instead of throwing the exception.
+     */
+    static <T> ListenableFuture<T> submit(ListeningExecutorService executor, Callable<T> task) {
+        try {
+            return executor.submit(task);
+        } catch (RejectedExecutionException exception) {
+            return Futures.immediateFailedFuture(exception);
+        }
+    }
+
+    /**
+     * Carries I/O failure of a save through Function, which can't throw checked exceptions.
+     */
+    static class SaveException extends RuntimeException {
+
+        private static final long serialVersionUID = 1L;
+
+        SaveException(IOException cause) {
+            super(cause);
+        }
+
+        @Override
+        public synchronized IOException getCause() {
+            return (IOException) super.getCause();
+        }
+    }
+
+    static ThreadPoolExecutor boundedExecutor(int threads, int queueSize) {
+        return new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<Runnable>(queueSize));
+    }
+}
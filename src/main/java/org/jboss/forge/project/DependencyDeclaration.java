@@ -0,0 +1,33 @@
+package org.jboss.forge.project;
+
+import org.jboss.forge.parser.groovy.SourceCodeElement;
+
+/**
+ * Dependency together with position of the invocation which declares it.
+ *
+ * @author Adam Wyłuda
+ */
+public class DependencyDeclaration extends SourceCodeElement {
+
+    private final Dependency dependency;
+
+    public DependencyDeclaration(Dependency dependency, SourceCodeElement invocation) {
+        this(dependency, invocation.getLineNumber(), invocation.getColumnNumber(),
+                invocation.getLastLineNumber(), invocation.getLastColumnNumber());
+    }
+
+    public DependencyDeclaration(Dependency dependency,
+                                 int lineNumber, int columnNumber, int lastLineNumber, int lastColumnNumber) {
+        super(lineNumber, columnNumber, lastLineNumber, lastColumnNumber);
+        this.dependency = dependency;
+    }
+
+    public Dependency getDependency() {
+        return dependency;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s at %d:%d", dependency, getLineNumber(), getColumnNumber());
+    }
+}
@@ -0,0 +1,290 @@
+package org.jboss.forge.project;
+
+import com.google.common.io.Files;
+import org.jboss.forge.parser.groovy.InvocationWithString;
+import org.jboss.forge.parser.groovy.ParseDiagnostic;
+import org.jboss.forge.parser.groovy.SourceCodeElement;
+import org.jboss.forge.parser.groovy.UnresolvedInvocation;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListeningExecutorService;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.RejectedExecutionException;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Dependencies added, removed and changed between two versions of a build script.
+ * <p/>
+ * Declarations are matched with queues of source positions in hash maps, so the diff takes linear time even
+ * for repeated artifacts. Declarations with the same version are matched first, remaining declarations
+ * of the same artifact are paired in source order as version changes. Both sources are parsed tolerantly,
+ * so broken statements and declarations which can't be read are skipped. Skipped fragments of each source are
+ * reported, as a declaration which became unreadable is otherwise shown as removed, so the diff is complete only
+ * if there are none. Identical sources are not parsed at all.
+ *
+ * @author Adam Wyłuda
+ */
+public class DependencyDiff {
+
+    private final List<DependencyDeclaration> added;
+    private final List<DependencyDeclaration> removed;
+    private final List<VersionChange> versionChanges;
+    private final List<SourceCodeElement> baseSkipped;
+    private final List<SourceCodeElement> headSkipped;
+
+    public DependencyDiff(List<DependencyDeclaration> added, List<DependencyDeclaration> removed,
+                          List<VersionChange> versionChanges) {
+        this(added, removed, versionChanges, Collections.<SourceCodeElement>emptyList(),
+                Collections.<SourceCodeElement>emptyList());
+    }
+
+    public DependencyDiff(List<DependencyDeclaration> added, List<DependencyDeclaration> removed,
+                          List<VersionChange> versionChanges, List<SourceCodeElement> baseSkipped,
+                          List<SourceCodeElement> headSkipped) {
+        this.added = added;
+        this.removed = removed;
+        this.versionChanges = versionChanges;
+        this.baseSkipped = baseSkipped;
+        this.headSkipped = headSkipped;
+    }
+
+    public static DependencyDiff compute(String baseSource, String headSource) {
+        if (baseSource.equals(headSource)) {
+            return compute(Collections.<DependencyDeclaration>emptyList(), Collections.<DependencyDeclaration>emptyList());
+        }
+        GradleProject baseProject = project(baseSource);
+        GradleProject headProject = project(headSource);
+        DependencyDiff diff = compute(declarations(baseProject), declarations(headProject));
+        return new DependencyDiff(diff.added, diff.removed, diff.versionChanges,
+                skipped(baseProject), skipped(headProject));
+    }
+
+    /**
+     * File which doesn't exist is treated as an empty script, so added and deleted build files can also be compared.
+     */
+    public static DependencyDiff compute(File baseFile, File headFile, Charset charset) throws IOException {
+        return compute(read(baseFile, charset), read(headFile, charset));
+    }
+
+    /**
+     * Compares files of each pair in parallel.
+     *
+     * @return Futures of diffs in order of given pairs. Future of a pair fails on its own if any of its files can't
+     * be read, or if the executor rejects the pair, other pairs are not affected.
+     */
+    public static List<ListenableFuture<DependencyDiff>> computeAll(List<File> baseFiles, List<File> headFiles,
+                                                                    final Charset charset,
+                                                                    ListeningExecutorService executor) {
+        checkArgument(baseFiles.size() == headFiles.size(), "Every base file must have its head file");
+        List<ListenableFuture<DependencyDiff>> futures = new ArrayList<>(baseFiles.size());
+        for (int index = 0; index < baseFiles.size(); index++) {
+            final File baseFile = baseFiles.get(index);
+            final File headFile = headFiles.get(index);
+            try {
+                futures.add(executor.submit(new Callable<DependencyDiff>() {
+                    @Override
+                    public DependencyDiff call() throws IOException {
+                        return compute(baseFile, headFile, charset);
+                    }
+                }));
+            } catch (RejectedExecutionException exception) {
+                futures.add(Futures.<DependencyDiff>immediateFailedFuture(exception));
+            }
+        }
+        return futures;
+    }
+
+    /**
+     * Declarations of both lists have to be in source order.
+     */
+    public static DependencyDiff compute(List<DependencyDeclaration> base, List<DependencyDeclaration> head) {
+        // Declarations with the same version are matched first
+        Map<Dependency, Deque<Integer>> baseIndexes = indexes(base, true, null);
+        boolean[] baseMatched = new boolean[base.size()];
+        boolean[] headMatched = new boolean[head.size()];
+        for (int index = 0; index < head.size(); index++) {
+            Deque<Integer> indexes = baseIndexes.get(head.get(index).getDependency());
+            if (indexes != null && !indexes.isEmpty()) {
+                baseMatched[indexes.poll()] = true;
+                headMatched[index] = true;
+            }
+        }
+
+        // Remaining declarations of the same artifact, which is dependency without version, are version changes
+        Map<Dependency, Deque<Integer>> artifactIndexes = indexes(base, false, baseMatched);
+        List<DependencyDeclaration> added = new ArrayList<>();
+        List<VersionChange> versionChanges = new ArrayList<>();
+        for (int index = 0; index < head.size(); index++) {
+            if (headMatched[index]) {
+                continue;
+            }
+            Deque<Integer> indexes = artifactIndexes.get(artifact(head.get(index).getDependency()));
+            if (indexes != null && !indexes.isEmpty()) {
+                int changedIndex = indexes.poll();
+                baseMatched[changedIndex] = true;
+                versionChanges.add(new VersionChange(base.get(changedIndex), head.get(index)));
+            } else {
+                added.add(head.get(index));
+            }
+        }
+
+        List<DependencyDeclaration> removed = new ArrayList<>();
+        for (int index = 0; index < base.size(); index++) {
+            if (!baseMatched[index]) {
+                removed.add(base.get(index));
+            }
+        }
+        return new DependencyDiff(added, removed, versionChanges);
+    }
+
+    /**
+     * @return Declarations which are only in the head source, in source order.
+     */
+    public List<DependencyDeclaration> getAdded() {
+        return added;
+    }
+
+    /**
+     * @return Declarations which are only in the base source, in source order.
+     */
+    public List<DependencyDeclaration> getRemoved() {
+        return removed;
+    }
+
+    /**
+     * @return Artifacts declared in both sources with different versions, in order of the head source.
+     */
+    public List<VersionChange> getVersionChanges() {
+        return versionChanges;
+    }
+
+    /**
+     * @return Fragments of the base source which were skipped, in source order: {@link ParseDiagnostic} of
+     * statements with syntax errors, {@link UnresolvedInvocation} of declarations which refer to values not defined
+     * in the script and {@link InvocationWithString} of declarations which can't be read.
+     */
+    public List<SourceCodeElement> getBaseSkipped() {
+        return baseSkipped;
+    }
+
+    /**
+     * @return Fragments of the head source which were skipped, the same as {@link #getBaseSkipped()}.
+     */
+    public List<SourceCodeElement> getHeadSkipped() {
+        return headSkipped;
+    }
+
+    /**
+     * @return True if no fragment of either source was skipped, otherwise declarations in skipped fragments
+     * may be reported as added or removed.
+     */
+    public boolean isComplete() {
+        return baseSkipped.isEmpty() && headSkipped.isEmpty();
+    }
+
+    public boolean isEmpty() {
+        return added.isEmpty() && removed.isEmpty() && versionChanges.isEmpty();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("added: %s, removed: %s, changed: %s", added, removed, versionChanges);
+    }
+
+    static GradleProject project(String source) {
+        GradleProject project = new GradleProject(source);
+        project.setTolerantParsing(true);
+        return project;
+    }
+
+    /**
+     * @return Declarations in source order, declarations with a string are otherwise read before those with a map.
+     */
+    static List<DependencyDeclaration> declarations(GradleProject project) {
+        List<DependencyDeclaration> declarations = new ArrayList<>(project.getDependencyDeclarations());
+        Collections.sort(declarations, GradleProject.SOURCE_ORDER);
+        return declarations;
+    }
+
+    static List<SourceCodeElement> skipped(GradleProject project) {
+        List<SourceCodeElement> skipped = new ArrayList<>();
+        // Source without dependencies block isn't parsed, so it has no diagnostics
+        if (project.getSource().contains(GradleProject.DEPENDENCIES)) {
+            skipped.addAll(project.getParseDiagnostics());
+        }
+        skipped.addAll(project.getUnresolvedDependencies());
+        skipped.addAll(project.getUnreadableDependencies());
+        Collections.sort(skipped, GradleProject.SOURCE_ORDER);
+        return skipped;
+    }
+
+    /**
+     * @return Queues of indexes of declarations in source order, by dependency or by artifact. Matched declarations
+     * are skipped.
+     */
+    static Map<Dependency, Deque<Integer>> indexes(List<DependencyDeclaration> declarations, boolean withVersion,
+                                                   boolean[] matched) {
+        Map<Dependency, Deque<Integer>> indexes = new HashMap<>();
+        for (int index = 0; index < declarations.size(); index++) {
+            if (matched != null && matched[index]) {
+                continue;
+            }
+            Dependency dependency = declarations.get(index).getDependency();
+            Dependency key = withVersion ? dependency : artifact(dependency);
+            Deque<Integer> keyIndexes = indexes.get(key);
+            if (keyIndexes == null) {
+                keyIndexes = new ArrayDeque<>(1);
+                indexes.put(key, keyIndexes);
+            }
+            keyIndexes.add(index);
+        }
+        return indexes;
+    }
+
+    static Dependency artifact(Dependency dependency) {
+        return new Dependency(dependency.getGroupId(), dependency.getArtifactId(), null, dependency.getType());
+    }
+
+    static String read(File file, Charset charset) throws IOException {
+        return file.isFile() ? Files.toString(file, charset) : "";
+    }
+
+    /**
+     * Declaration of the same artifact in both sources, with different versions.
+     */
+    public static class VersionChange {
+
+        private final DependencyDeclaration base;
+        private final DependencyDeclaration head;
+
+        public VersionChange(DependencyDeclaration base, DependencyDeclaration head) {
+            this.base = base;
+            this.head = head;
+        }
+
+        public DependencyDeclaration getBase() {
+            return base;
+        }
+
+        public DependencyDeclaration getHead() {
+            return head;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s -> %s", base, head);
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package org.jboss.forge.project;
+
+import java.io.IOException;
+
+/**
+ * Thrown when staged edits can't be applied to a build file, because it was modified by someone else.
+ *
+ * @author Adam Wyłuda
+ */
+public class EditConflictException extends IOException {
+
+    private static final long serialVersionUID = 1L;
+
+    public EditConflictException(String message) {
+        super(message);
+    }
+}
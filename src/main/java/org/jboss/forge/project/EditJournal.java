@@ -0,0 +1,176 @@
+package org.jboss.forge.project;
+
+import org.jboss.forge.parser.groovy.Rope;
+import org.jboss.forge.parser.groovy.SourcePatch;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkState;
+
+/**
+ * Undo and redo history of source edits.
+ * <p/>
+ * Text is kept as a {@link Rope}, so every version shares unchanged parts with the previous one, and every step
+ * of the history stores only the patches and their inverses. Undo and redo cost time and memory proportional
+ * to the size of the edit. History is limited to given count of steps, the oldest ones are dropped.
+ *
+ * @author Adam Wyłuda
+ */
+public class EditJournal {
+
+    public static final int DEFAULT_HISTORY_LIMIT = 100;
+
+    private final int historyLimit;
+    private final Deque<Step> undoSteps = new ArrayDeque<>();
+    private final Deque<Step> redoSteps = new ArrayDeque<>();
+    private Rope text;
+
+    // Text at the time of the last squash, with region changed since then
+    private Rope savedText;
+    private boolean changed;
+    private int changeStart;
+    private int changeEnd;
+    private int lengthDelta;
+
+    public EditJournal(String source) {
+        this(source, DEFAULT_HISTORY_LIMIT);
+    }
+
+    public EditJournal(String source, int historyLimit) {
+        checkArgument(historyLimit >= 1, "History limit must be greater than 0");
+        this.historyLimit = historyLimit;
+        this.text = Rope.of(source);
+        this.savedText = text;
+    }
+
+    public Rope getText() {
+        return text;
+    }
+
+    public int getHistoryLimit() {
+        return historyLimit;
+    }
+
+    public boolean canUndo() {
+        return !undoSteps.isEmpty();
+    }
+
+    public boolean canRedo() {
+        return !redoSteps.isEmpty();
+    }
+
+    /**
+     * Applies patches to the text and records them as a single step, clearing redo history.
+     */
+    public void record(List<SourcePatch> patches) {
+        if (patches.isEmpty()) {
+            return;
+        }
+        List<SourcePatch> inversePatches = apply(patches);
+        undoSteps.addLast(new Step(new ArrayList<>(patches), inversePatches));
+        if (undoSteps.size() > historyLimit) {
+            undoSteps.removeFirst();
+        }
+        redoSteps.clear();
+    }
+
+    /**
+     * @return Patches which were applied to the text to revert the last step.
+     */
+    public List<SourcePatch> undo() {
+        checkState(canUndo(), "Nothing to undo");
+        Step step = undoSteps.removeLast();
+        apply(step.inversePatches);
+        redoSteps.addLast(step);
+        return step.inversePatches;
+    }
+
+    /**
+     * @return Patches which were applied to the text to repeat the last undone step.
+     */
+    public List<SourcePatch> redo() {
+        checkState(canRedo(), "Nothing to redo");
+        Step step = redoSteps.removeLast();
+        apply(step.patches);
+        undoSteps.addLast(step);
+        return step.patches;
+    }
+
+    /**
+     * Squashes all changes made since the previous squash into a single patch, which is meant to be saved.
+     * History is replaced with a single step, so undo goes back to the previously squashed text.
+     *
+     * @return Net patch, or empty list if text hasn't changed.
+     */
+    public List<SourcePatch> squash() {
+        if (!changed) {
+            return Collections.emptyList();
+        }
+        int savedChangeEnd = changeEnd - lengthDelta;
+        String insertText = text.substring(changeStart, changeEnd).toString();
+        String deletedText = savedText.substring(changeStart, savedChangeEnd).toString();
+        savedText = text;
+        changed = false;
+        undoSteps.clear();
+        redoSteps.clear();
+        if (insertText.equals(deletedText)) {
+            return Collections.emptyList();
+        }
+        SourcePatch patch = new SourcePatch(changeStart, deletedText.length(), insertText);
+        SourcePatch inversePatch = new SourcePatch(changeStart, insertText.length(), deletedText);
+        undoSteps.addLast(new Step(Collections.singletonList(patch), Collections.singletonList(inversePatch)));
+        return Collections.singletonList(patch);
+    }
+
+    /**
+     * Applies patches one after another.
+     *
+     * @return Inverse patches, in order in which they should be applied.
+     */
+    List<SourcePatch> apply(List<SourcePatch> patches) {
+        List<SourcePatch> inversePatches = new ArrayList<>(patches.size());
+        for (SourcePatch patch : patches) {
+            String deletedText = text.substring(patch.getOffset(), patch.getOffset() + patch.getDeleteLength()).toString();
+            inversePatches.add(new SourcePatch(patch.getOffset(), patch.getInsertText().length(), deletedText));
+            text = text.apply(patch);
+            trackChange(patch);
+        }
+        Collections.reverse(inversePatches);
+        return inversePatches;
+    }
+
+    /**
+     * Extends changed region, which is the same in saved and current text at the beginning
+     * and differs only by length delta at the end.
+     */
+    void trackChange(SourcePatch patch) {
+        int patchEnd = patch.getOffset() + patch.getDeleteLength();
+        int patchDelta = patch.getInsertText().length() - patch.getDeleteLength();
+        if (!changed) {
+            changed = true;
+            changeStart = patch.getOffset();
+            changeEnd = patchEnd + patchDelta;
+            lengthDelta = patchDelta;
+            return;
+        }
+        changeStart = Math.min(changeStart, patch.getOffset());
+        changeEnd = Math.max(changeEnd, patchEnd) + patchDelta;
+        lengthDelta += patchDelta;
+    }
+
+    static class Step {
+
+        private final List<SourcePatch> patches;
+        private final List<SourcePatch> inversePatches;
+
+        Step(List<SourcePatch> patches, List<SourcePatch> inversePatches) {
+            this.patches = patches;
+            this.inversePatches = inversePatches;
+        }
+    }
+}
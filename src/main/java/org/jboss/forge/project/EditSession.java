@@ -0,0 +1,582 @@
+package org.jboss.forge.project;
+
+import com.google.common.base.Function;
+import com.google.common.base.Joiner;
+import com.google.common.base.Splitter;
+import org.jboss.forge.parser.groovy.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import static com.google.common.base.Preconditions.checkState;
+
+/**
+ * Set of edits of any blocks of the build script, which are applied together, like:
+ * <pre>
+ * new EditSession()
+ *         .applyPlugin("java")
+ *         .addInvocation("repositories", "mavenCentral")
+ *         .addDependency(Dependency.fromString("com.google.guava:guava:14.0.1", Dependency.Type.COMPILE))
+ *         .apply(project);
+ * </pre>
+ * Blocks are given as dot separated paths of closure names, like "buildscript.repositories", empty path is the top
+ * level of the script. Missing blocks are created, invocations already present in a block are not added again.
+ * Removal of a single argument of multi-argument invocation, like: compile 'a:b:1', 'c:d:2', fails the session.
+ * <p/>
+ * Edits are only staged until the session is applied to a project. Then the source is parsed once, patches
+ * of all edits are computed against it and applied as a single step, sorted from the last offset to the first one.
+ * Session doesn't depend on the source, so it can be applied again to reloaded content, see {@link GradleBuildFile}.
+ *
+ * @author Adam Wyłuda
+ */
+public class EditSession implements Function<GradleProject, List<SourcePatch>> {
+
+    private static final String INDENTATION = "    ";
+    // Blocks which have to stay at the beginning of the script
+    private static final Set<String> LEADING_BLOCKS = new HashSet<>(Arrays.asList("buildscript", "plugins"));
+
+    // Patches at the same offset are applied deletion first, otherwise deletion would remove inserted text
+    private static final Comparator<SourcePatch> LAST_OFFSET_FIRST = new Comparator<SourcePatch>() {
+        @Override
+        public int compare(SourcePatch first, SourcePatch second) {
+            int result = Integer.compare(second.getOffset(), first.getOffset());
+            return result != 0 ? result : Integer.compare(second.getDeleteLength(), first.getDeleteLength());
+        }
+    };
+
+    private final Block root = new Block("");
+
+    /**
+     * Creates block with given path if it doesn't exist.
+     */
+    public EditSession addBlock(String path) {
+        block(path);
+        return this;
+    }
+
+    /**
+     * Adds invocation without arguments, like: mavenCentral().
+     */
+    public EditSession addInvocation(String path, String methodName) {
+        block(path).additions.add(new InvocationStatement(methodName));
+        return this;
+    }
+
+    /**
+     * Adds invocation with a string, like: classpath 'a:b:1'.
+     */
+    public EditSession addStringInvocation(String path, String methodName, String string) {
+        block(path).additions.add(new StringStatement(methodName, string));
+        return this;
+    }
+
+    /**
+     * Adds invocation with a map, parameters are written in iteration order of the map, like: apply plugin: 'java'.
+     */
+    public EditSession addMapInvocation(String path, String methodName, Map<String, String> parameters) {
+        block(path).additions.add(new MapStatement(methodName, parameters));
+        return this;
+    }
+
+    public EditSession removeInvocation(String path, String methodName) {
+        block(path).removals.add(new InvocationStatement(methodName));
+        return this;
+    }
+
+    public EditSession removeStringInvocation(String path, String methodName, String string) {
+        block(path).removals.add(new StringStatement(methodName, string));
+        return this;
+    }
+
+    public EditSession removeMapInvocation(String path, String methodName, Map<String, String> parameters) {
+        block(path).removals.add(new MapStatement(methodName, parameters));
+        return this;
+    }
+
+    public EditSession applyPlugin(String plugin) {
+        return addMapInvocation("", "apply", Collections.singletonMap("plugin", plugin));
+    }
+
+    /**
+     * Adds dependency to the dependencies block, unless it's already declared as a string or a map.
+     */
+    public EditSession addDependency(Dependency dependency) {
+        block(GradleProject.DEPENDENCIES).additions.add(new DependencyStatement(dependency));
+        return this;
+    }
+
+    /**
+     * Removes all declarations of given dependency from the dependencies block.
+     */
+    public EditSession removeDependency(Dependency dependency) {
+        block(GradleProject.DEPENDENCIES).removals.add(new DependencyStatement(dependency));
+        return this;
+    }
+
+    /**
+     * Applies all staged edits to the project, session stays unchanged.
+     *
+     * @return Patches which were applied to the source, or would be applied in dry run mode.
+     * @throws IllegalStateException If a removal matches an argument of multi-argument invocation,
+     *                               the project is not changed then.
+     */
+    @Override
+    public List<SourcePatch> apply(GradleProject project) {
+        String source = project.getSource();
+        InvocationWithClosure rootInvocation = project.getParser().getRootInvocation();
+        Patches patches = new Patches(project, source);
+        patches.editRoot(root, rootInvocation);
+        return project.applyPatches(patches.sorted());
+    }
+
+    Block block(String path) {
+        Block block = root;
+        for (String name : Splitter.on('.').omitEmptyStrings().trimResults().split(path)) {
+            Block child = block.children.get(name);
+            if (child == null) {
+                child = new Block(name);
+                block.children.put(name, child);
+            }
+            block = child;
+        }
+        return block;
+    }
+
+    /**
+     * Computes patches of all blocks against the same source.
+     */
+    static class Patches {
+
+        private final GradleProject project;
+        private final String source;
+        private final String lineSeparator;
+        private final List<SourcePatch> deletions = new ArrayList<>();
+        // Texts inserted at the same offset are joined in order in which they were staged
+        private final Map<Integer, StringBuilder> insertions = new TreeMap<>();
+
+        Patches(GradleProject project, String source) {
+            this.project = project;
+            this.source = source;
+            this.lineSeparator = GradleProject.lineSeparator(source);
+        }
+
+        /**
+         * Top level statements are inserted after the last top level invocation of the same method, or at the beginning
+         * of the script, so that plugins are applied before they are configured. Beginning of the script is after
+         * leading comments and after leading buildscript and plugins blocks. New blocks are appended at the end.
+         */
+        void editRoot(Block block, InvocationWithClosure rootInvocation) {
+            List<SourceCodeElement> invocations = remove(block, rootInvocation);
+            for (Statement statement : missingStatements(block, invocations)) {
+                SourceCodeElement lastInvocation = null;
+                for (SourceCodeElement invocation : invocations) {
+                    if (statement.methodName.equals(methodName(invocation))) {
+                        lastInvocation = invocation;
+                    }
+                }
+                if (lastInvocation == null) {
+                    lastInvocation = lastLeadingBlock(invocations);
+                }
+                if (lastInvocation != null) {
+                    insert(SourceUtil.positionInSource(source, lastInvocation.getLastLineNumber(),
+                            lastInvocation.getLastColumnNumber()), lineSeparator + statement.text());
+                } else {
+                    int position = leadingCommentsEnd();
+                    // Comment in the last line has to be ended, otherwise it would contain the statement
+                    String prefix = position == source.length() && !source.isEmpty() && !source.endsWith("\n") ?
+                            lineSeparator : "";
+                    insert(position, prefix + statement.text() + lineSeparator);
+                }
+            }
+            for (Block child : editChildren(block, rootInvocation)) {
+                StringBuilder builder = new StringBuilder(lineSeparator);
+                appendBlock(builder, child, "");
+                insert(source.length(), builder.toString());
+            }
+        }
+
+        /**
+         * @return Last of buildscript and plugins blocks which start the script, or null if it starts otherwise.
+         */
+        static SourceCodeElement lastLeadingBlock(List<SourceCodeElement> invocations) {
+            SourceCodeElement lastBlock = null;
+            for (SourceCodeElement invocation : invocations) {
+                if (!(invocation instanceof InvocationWithClosure) || !LEADING_BLOCKS.contains(methodName(invocation))) {
+                    break;
+                }
+                lastBlock = invocation;
+            }
+            return lastBlock;
+        }
+
+        /**
+         * @return Start of the line which follows comments at the beginning of the script, like a license header.
+         */
+        int leadingCommentsEnd() {
+            int position = 0;
+            int lineStart = 0;
+            while (position < source.length()) {
+                if (Character.isWhitespace(source.charAt(position))) {
+                    if (source.charAt(position) == '\n') {
+                        lineStart = position + 1;
+                    }
+                    position++;
+                } else if (source.startsWith("//", position) || (position == 0 && source.startsWith("#!"))) {
+                    int lineEnd = source.indexOf('\n', position);
+                    position = lineEnd < 0 ? source.length() : lineEnd;
+                } else if (source.startsWith("/*", position)) {
+                    int commentEnd = source.indexOf("*/", position + 2);
+                    position = commentEnd < 0 ? source.length() : commentEnd + 2;
+                    lineStart = position;
+                } else {
+                    break;
+                }
+            }
+            return position == source.length() ? position : lineStart;
+        }
+
+        /**
+         * New statements and blocks are inserted in new lines before closing '}', indented one level deeper than it.
+         * Closing '}' which shares the line with other statements is moved to a new line, without trailing whitespace.
+         */
+        void editBlock(Block block, InvocationWithClosure closure) {
+            List<SourceCodeElement> invocations = remove(block, closure);
+            List<Statement> statements = missingStatements(block, invocations);
+            List<Block> newChildren = editChildren(block, closure);
+            if (statements.isEmpty() && newChildren.isEmpty()) {
+                return;
+            }
+            int bracePosition = SourceUtil.positionInSource(source, closure.getLastLineNumber(),
+                    closure.getLastColumnNumber() - 1);
+            int lineStartPosition = source.lastIndexOf('\n', bracePosition - 1) + 1;
+            String indentation = indentation(lineStartPosition);
+            StringBuilder builder = new StringBuilder();
+            int position = lineStartPosition;
+            // Closing '}' shares the line with other statements, like: repositories { jcenter() }
+            if (!source.substring(lineStartPosition, bracePosition).trim().isEmpty()) {
+                position = bracePosition;
+                while (Character.isWhitespace(source.charAt(position - 1))) {
+                    position--;
+                }
+                position = beforeDeletions(position);
+                if (position < bracePosition) {
+                    deletions.add(SourcePatch.deletion(position, bracePosition - position));
+                }
+                builder.append(lineSeparator);
+            }
+            appendContent(builder, statements, newChildren, indentation + INDENTATION);
+            insert(position, builder.toString());
+        }
+
+        /**
+         * Edits children which already exist in the closure.
+         *
+         * @return Children which have to be created.
+         */
+        List<Block> editChildren(Block block, InvocationWithClosure closure) {
+            List<Block> newChildren = new ArrayList<>();
+            for (Block child : block.children.values()) {
+                InvocationWithClosure childClosure = findClosure(closure, child.name);
+                if (childClosure != null) {
+                    editBlock(child, childClosure);
+                } else {
+                    newChildren.add(child);
+                }
+            }
+            return newChildren;
+        }
+
+        /**
+         * Removes invocations matching staged removals.
+         *
+         * @return Invocations of the closure which are not removed, in source order.
+         */
+        List<SourceCodeElement> remove(Block block, InvocationWithClosure closure) {
+            List<SourceCodeElement> remainingInvocations = new ArrayList<>();
+            SourceCodeElement previousInvocation = null;
+            for (SourceCodeElement invocation : GradleProject.internalInvocationsInSourceOrder(closure)) {
+                if (isRemoved(block, closure, invocation)) {
+                    deletions.add(project.removeInvocationFromSource(closure, previousInvocation, invocation));
+                } else {
+                    remainingInvocations.add(invocation);
+                }
+                previousInvocation = invocation;
+            }
+            return remainingInvocations;
+        }
+
+        static boolean isRemoved(Block block, InvocationWithClosure closure, SourceCodeElement invocation) {
+            for (Statement statement : block.removals) {
+                if (statement.matches(invocation)) {
+                    // Argument of multi-argument invocation can't be removed without its siblings
+                    checkState(!(invocation instanceof InvocationWithString) ||
+                            !GradleProject.isSharedInvocation(closure, (InvocationWithString) invocation),
+                            "Can't remove %s, it's an argument of multi-argument invocation in line %s",
+                            statement.text(), invocation.getLineNumber());
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * Moves position to the beginning of staged deletions which contain or end at it, like removed last statement
+         * of a one-line block. Otherwise the deletion, which is applied after the insertion, would remove inserted text.
+         */
+        int beforeDeletions(int position) {
+            boolean moved = true;
+            while (moved) {
+                moved = false;
+                for (SourcePatch deletion : deletions) {
+                    if (deletion.getOffset() < position && position <= deletion.getOffset() + deletion.getDeleteLength()) {
+                        position = deletion.getOffset();
+                        moved = true;
+                    }
+                }
+            }
+            return position;
+        }
+
+        void insert(int position, String text) {
+            StringBuilder builder = insertions.get(position);
+            if (builder == null) {
+                builder = new StringBuilder();
+                insertions.put(position, builder);
+            }
+            builder.append(text);
+        }
+
+        String indentation(int lineStartPosition) {
+            int position = lineStartPosition;
+            while (position < source.length() && (source.charAt(position) == ' ' || source.charAt(position) == '\t')) {
+                position++;
+            }
+            return source.substring(lineStartPosition, position);
+        }
+
+        void appendBlock(StringBuilder builder, Block block, String indentation) {
+            builder.append(indentation).append(block.name).append(" {").append(lineSeparator);
+            appendContent(builder, missingStatements(block, Collections.<SourceCodeElement>emptyList()),
+                    new ArrayList<>(block.children.values()), indentation + INDENTATION);
+            builder.append(indentation).append('}').append(lineSeparator);
+        }
+
+        void appendContent(StringBuilder builder, List<Statement> statements, List<Block> blocks, String indentation) {
+            for (Statement statement : statements) {
+                builder.append(indentation).append(statement.text()).append(lineSeparator);
+            }
+            for (Block block : blocks) {
+                appendBlock(builder, block, indentation);
+            }
+        }
+
+        /**
+         * Overlapping deletions are merged, then all patches are sorted from the last offset to the first one,
+         * so offsets of each patch are still valid when it's applied.
+         */
+        List<SourcePatch> sorted() {
+            Collections.sort(deletions, new Comparator<SourcePatch>() {
+                @Override
+                public int compare(SourcePatch first, SourcePatch second) {
+                    return Integer.compare(first.getOffset(), second.getOffset());
+                }
+            });
+            List<SourcePatch> patches = new ArrayList<>();
+            for (SourcePatch deletion : deletions) {
+                GradleProject.addDeletion(patches, deletion);
+            }
+            for (Map.Entry<Integer, StringBuilder> insertion : insertions.entrySet()) {
+                patches.add(SourcePatch.insertion(insertion.getKey(), insertion.getValue().toString()));
+            }
+            Collections.sort(patches, LAST_OFFSET_FIRST);
+            return patches;
+        }
+
+        /**
+         * @return Staged additions without those already present in the block and without duplicates.
+         */
+        static List<Statement> missingStatements(Block block, List<SourceCodeElement> invocations) {
+            List<Statement> statements = new ArrayList<>();
+            Set<String> texts = new HashSet<>();
+            for (Statement statement : block.additions) {
+                if (!texts.add(statement.text())) {
+                    continue;
+                }
+                boolean present = false;
+                for (SourceCodeElement invocation : invocations) {
+                    present |= statement.matches(invocation);
+                }
+                if (!present) {
+                    statements.add(statement);
+                }
+            }
+            return statements;
+        }
+
+        static InvocationWithClosure findClosure(InvocationWithClosure closure, String name) {
+            for (InvocationWithClosure invocation : closure.getInternalInvocations()) {
+                if (name.equals(invocation.getMethodName())) {
+                    return invocation;
+                }
+            }
+            return null;
+        }
+
+        static String methodName(SourceCodeElement invocation) {
+            if (invocation instanceof InvocationWithClosure) {
+                return ((InvocationWithClosure) invocation).getMethodName();
+            }
+            if (invocation instanceof InvocationWithString) {
+                return ((InvocationWithString) invocation).getMethodName();
+            }
+            if (invocation instanceof InvocationWithMap) {
+                return ((InvocationWithMap) invocation).getMethodName();
+            }
+            if (invocation instanceof InvocationWithoutArguments) {
+                return ((InvocationWithoutArguments) invocation).getMethodName();
+            }
+            if (invocation instanceof UnresolvedInvocation) {
+                return ((UnresolvedInvocation) invocation).getMethodName();
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Edits staged for a single block, with its child blocks in order in which they were first referred to.
+     */
+    static class Block {
+
+        private final String name;
+        private final Map<String, Block> children = new LinkedHashMap<>();
+        private final List<Statement> additions = new ArrayList<>();
+        private final List<Statement> removals = new ArrayList<>();
+
+        Block(String name) {
+            this.name = name;
+        }
+    }
+
+    /**
+     * Statement which can be written to the source and found among parsed invocations.
+     */
+    abstract static class Statement {
+
+        protected final String methodName;
+
+        Statement(String methodName) {
+            this.methodName = methodName;
+        }
+
+        abstract String text();
+
+        abstract boolean matches(SourceCodeElement invocation);
+    }
+
+    static class InvocationStatement extends Statement {
+
+        InvocationStatement(String methodName) {
+            super(methodName);
+        }
+
+        @Override
+        String text() {
+            return methodName + "()";
+        }
+
+        @Override
+        boolean matches(SourceCodeElement invocation) {
+            return invocation instanceof InvocationWithoutArguments &&
+                    methodName.equals(((InvocationWithoutArguments) invocation).getMethodName());
+        }
+    }
+
+    static class StringStatement extends Statement {
+
+        private final String string;
+
+        StringStatement(String methodName, String string) {
+            super(methodName);
+            this.string = string;
+        }
+
+        @Override
+        String text() {
+            return String.format("%s '%s'", methodName, string);
+        }
+
+        @Override
+        boolean matches(SourceCodeElement invocation) {
+            return invocation instanceof InvocationWithString &&
+                    methodName.equals(((InvocationWithString) invocation).getMethodName()) &&
+                    string.equals(((InvocationWithString) invocation).getString());
+        }
+    }
+
+    static class MapStatement extends Statement {
+
+        private final Map<String, String> parameters;
+
+        MapStatement(String methodName, Map<String, String> parameters) {
+            super(methodName);
+            this.parameters = new LinkedHashMap<>(parameters);
+        }
+
+        @Override
+        String text() {
+            List<String> entries = new ArrayList<>();
+            for (Map.Entry<String, String> entry : parameters.entrySet()) {
+                entries.add(String.format("%s: '%s'", entry.getKey(), entry.getValue()));
+            }
+            return methodName + " " + Joiner.on(", ").join(entries);
+        }
+
+        @Override
+        boolean matches(SourceCodeElement invocation) {
+            return invocation instanceof InvocationWithMap &&
+                    methodName.equals(((InvocationWithMap) invocation).getMethodName()) &&
+                    parameters.equals(((InvocationWithMap) invocation).getParameters());
+        }
+    }
+
+    /**
+     * Dependency is written as a string, but it's also found when declared with a map.
+     */
+    static class DependencyStatement extends Statement {
+
+        private final Dependency dependency;
+
+        DependencyStatement(Dependency dependency) {
+            super(dependency.getType().getMethodName());
+            this.dependency = dependency;
+        }
+
+        @Override
+        String text() {
+            return String.format("%s '%s'", methodName, dependency.toGradleString());
+        }
+
+        @Override
+        boolean matches(SourceCodeElement invocation) {
+            if (invocation instanceof InvocationWithString) {
+                InvocationWithString stringInvocation = (InvocationWithString) invocation;
+                return methodName.equals(stringInvocation.getMethodName()) &&
+                        dependency.toGradleString().equals(stringInvocation.getString());
+            }
+            if (invocation instanceof InvocationWithMap) {
+                InvocationWithMap mapInvocation = (InvocationWithMap) invocation;
+                return methodName.equals(mapInvocation.getMethodName()) &&
+                        Dependency.fromMap(mapInvocation.getParameters(), dependency.getType()).equals(dependency);
+            }
+            return false;
+        }
+    }
+}
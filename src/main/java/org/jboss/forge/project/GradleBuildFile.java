@@ -0,0 +1,289 @@
+package org.jboss.forge.project;
+
+import com.google.common.base.Function;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+import com.google.common.util.concurrent.Striped;
+import org.jboss.forge.parser.groovy.SourcePatch;
+import org.jboss.forge.parser.groovy.SourceUtil;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.locks.Lock;
+
+/**
+ * Build file which can be edited by several processes at the same time.
+ * <p/>
+ * Edits are staged on the loaded project and remembered, then committed under exclusive lock of the file.
+ * If content of the file has changed since it was loaded, the file is parsed again and staged edits are applied
+ * to the new content, instead of overwriting changes made by others. Patches are not reapplied directly,
+ * as their offsets refer to the previous content.
+ * <p/>
+ * File locks are held by the whole JVM, so threads of a single process are serialized with an in-process lock.
+ * After a reload history of edits contains only the reapplied edits, as earlier steps refer to the previous content.
+ * For the same reason staged undo or redo can't be reapplied, commit fails with {@link EditConflictException}.
+ *
+ * @author Adam Wyłuda
+ */
+public class GradleBuildFile {
+
+    private static final HashFunction HASH_FUNCTION = Hashing.murmur3_128();
+    private static final Striped<Lock> PROCESS_LOCKS = Striped.lock(64);
+
+    static final Function<GradleProject, List<SourcePatch>> UNDO = new HistoryEdit(true);
+    static final Function<GradleProject, List<SourcePatch>> REDO = new HistoryEdit(false);
+
+    private final File file;
+    private final Charset charset;
+    private final List<Function<GradleProject, List<SourcePatch>>> pendingEdits = new ArrayList<>();
+    private final List<SourcePatch> pendingPatches = new ArrayList<>();
+    private GradleProject project;
+    private String loadedSource;
+    private byte[] loadedContent;
+    private Long loadedFingerprint;
+    private int reloadCount;
+
+    public GradleBuildFile(File file, Charset charset) throws IOException {
+        this.file = file;
+        this.charset = charset;
+        load();
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    /**
+     * Returns project with content of the last load or commit and with staged edits, it's replaced with a new one
+     * when the file is reloaded. It's a snapshot: changes made by others are seen after the next commit
+     * or {@link #reload()}. It should be modified only with {@link #stage(Function)}, otherwise changes are not saved.
+     */
+    public synchronized GradleProject getProject() {
+        return project;
+    }
+
+    public synchronized boolean hasPendingEdits() {
+        return !pendingEdits.isEmpty();
+    }
+
+    /**
+     * @return Count of commits which found the file modified by someone else and had to reapply edits.
+     */
+    public synchronized int getReloadCount() {
+        return reloadCount;
+    }
+
+    /**
+     * Applies edit to the loaded project and remembers it until the next commit.
+     *
+     * @return Patches which were applied to the project.
+     */
+    public synchronized List<SourcePatch> stage(Function<GradleProject, List<SourcePatch>> edit) {
+        List<SourcePatch> patches = edit.apply(project);
+        if (!project.isDryRun() && !patches.isEmpty()) {
+            pendingEdits.add(edit);
+            pendingPatches.addAll(patches);
+        }
+        return patches;
+    }
+
+    /**
+     * Writes staged edits to the file under exclusive lock.
+     *
+     * @return Patches which were written, relative to the content of the file before commit.
+     * @throws EditConflictException If the file was modified by someone else and staged undo or redo
+     *                               can't be reapplied. Staged edits are discarded and the file is reloaded.
+     */
+    public synchronized List<SourcePatch> commit() throws IOException {
+        if (pendingEdits.isEmpty()) {
+            return Collections.emptyList();
+        }
+        Lock processLock = PROCESS_LOCKS.get(file.getCanonicalPath());
+        processLock.lock();
+        try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+             FileChannel channel = randomAccessFile.getChannel()) {
+            FileLock fileLock = channel.lock();
+            try {
+                return commit(channel);
+            } finally {
+                fileLock.release();
+            }
+        } finally {
+            processLock.unlock();
+        }
+    }
+
+    private List<SourcePatch> commit(FileChannel channel) throws IOException {
+        byte[] content = read(channel);
+        String originalSource = loadedSource;
+        List<SourcePatch> patches = new ArrayList<>(pendingPatches);
+        // Someone else has modified the file, so edits are applied to its current content
+        if (HASH_FUNCTION.hashBytes(content).asLong() != loadedFingerprint()) {
+            originalSource = new String(content, charset);
+            GradleProject reloadedProject = newProject(originalSource);
+            reloadCount++;
+            // Undo and redo refer to history of the previous content
+            if (hasPendingHistoryEdits()) {
+                project = reloadedProject;
+                loaded(originalSource, content);
+                throw new EditConflictException("Build file " + file + " was modified by someone else, " +
+                        "staged undo or redo can't be applied");
+            }
+            patches = new ArrayList<>();
+            for (Function<GradleProject, List<SourcePatch>> edit : pendingEdits) {
+                patches.addAll(edit.apply(reloadedProject));
+            }
+            project = reloadedProject;
+        }
+        new SourceFileWriter(file, charset).write(channel, originalSource, patches);
+        String writtenSource = SourceUtil.applyPatches(originalSource, patches);
+        loaded(writtenSource, writtenSource.getBytes(charset));
+        return patches;
+    }
+
+    boolean hasPendingHistoryEdits() {
+        for (Function<GradleProject, List<SourcePatch>> edit : pendingEdits) {
+            if (edit instanceof HistoryEdit) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Stages given edit and commits it together with previously staged ones.
+     *
+     * @return Patches which were written, relative to the content of the file before commit.
+     */
+    public synchronized List<SourcePatch> edit(Function<GradleProject, List<SourcePatch>> edit) throws IOException {
+        stage(edit);
+        return commit();
+    }
+
+    public List<SourcePatch> addDependency(final Dependency dependency) throws IOException {
+        return edit(new Function<GradleProject, List<SourcePatch>>() {
+            @Override
+            public List<SourcePatch> apply(GradleProject project) {
+                return project.addDependency(dependency);
+            }
+        });
+    }
+
+    public List<SourcePatch> removeDependency(final Dependency dependency) throws IOException {
+        return edit(new Function<GradleProject, List<SourcePatch>>() {
+            @Override
+            public List<SourcePatch> apply(GradleProject project) {
+                return project.removeDependency(dependency);
+            }
+        });
+    }
+
+    /**
+     * Reverts the last edit of the project, after a reload only reapplied edits can be reverted.
+     *
+     * @throws EditConflictException If the file was modified by someone else since it was loaded.
+     */
+    public List<SourcePatch> undo() throws IOException {
+        return edit(UNDO);
+    }
+
+    /**
+     * Repeats the last reverted edit of the project, reverted edits are forgotten when the file is reloaded.
+     *
+     * @throws EditConflictException If the file was modified by someone else since it was loaded.
+     */
+    public List<SourcePatch> redo() throws IOException {
+        return edit(REDO);
+    }
+
+    /**
+     * Reads current content of the file, discarding staged edits and history of the project.
+     */
+    public void reload() throws IOException {
+        load();
+    }
+
+    /**
+     * Reads the file under shared lock, so that it's not read in the middle of other process's commit.
+     */
+    synchronized void load() throws IOException {
+        Lock processLock = PROCESS_LOCKS.get(file.getCanonicalPath());
+        processLock.lock();
+        try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+             FileChannel channel = randomAccessFile.getChannel()) {
+            FileLock fileLock = channel.lock(0, Long.MAX_VALUE, true);
+            try {
+                byte[] content = read(channel);
+                String source = new String(content, charset);
+                project = newProject(source);
+                loaded(source, content);
+            } finally {
+                fileLock.release();
+            }
+        } finally {
+            processLock.unlock();
+        }
+    }
+
+    void loaded(String source, byte[] content) {
+        loadedSource = source;
+        loadedContent = content;
+        loadedFingerprint = null;
+        pendingEdits.clear();
+        pendingPatches.clear();
+    }
+
+    /**
+     * Fingerprint is computed only when it's needed by the first commit, so read only use doesn't pay for it.
+     */
+    long loadedFingerprint() {
+        if (loadedFingerprint == null) {
+            loadedFingerprint = HASH_FUNCTION.hashBytes(loadedContent).asLong();
+            loadedContent = null;
+        }
+        return loadedFingerprint;
+    }
+
+    GradleProject newProject(String source) {
+        GradleProject newProject = new GradleProject(source);
+        if (project != null) {
+            newProject.setTolerantParsing(project.isTolerantParsing());
+        }
+        return newProject;
+    }
+
+    static byte[] read(FileChannel channel) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate((int) channel.size());
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, buffer.position()) < 0) {
+                break;
+            }
+        }
+        return buffer.array();
+    }
+
+    /**
+     * Undo or redo of the project history, which can be applied only to the content it was staged for.
+     */
+    static class HistoryEdit implements Function<GradleProject, List<SourcePatch>> {
+
+        private final boolean undo;
+
+        HistoryEdit(boolean undo) {
+            this.undo = undo;
+        }
+
+        @Override
+        public List<SourcePatch> apply(GradleProject project) {
+            return undo ? project.undo() : project.redo();
+        }
+    }
+}
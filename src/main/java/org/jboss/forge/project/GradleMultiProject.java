@@ -0,0 +1,196 @@
+package org.jboss.forge.project;
+
+import com.google.common.base.Function;
+import com.google.common.base.Optional;
+import com.google.common.base.Throwables;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.google.common.cache.Weigher;
+import com.google.common.io.Files;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Multi-project build described by settings.gradle in given root directory.
+ * Subprojects are loaded lazily and kept in a LRU cache bounded by total length of their sources,
+ * so projects which are never accessed are never parsed. Edited projects are kept out of the cache until they are
+ * saved, so unsaved edits are never evicted.
+ *
+ * @author Adam Wyłuda
+ */
+public class GradleMultiProject {
+
+    public static final String SETTINGS_FILE = "settings.gradle";
+    public static final String BUILD_FILE = "build.gradle";
+    public static final long DEFAULT_MAXIMUM_SOURCE_WEIGHT = 16 * 1024 * 1024;
+    // Projects without build file are also weighed, otherwise their count wouldn't be bounded
+    static final int ABSENT_PROJECT_WEIGHT = 64;
+
+    private final File rootDirectory;
+    private final GradleSettings settings;
+    private final LoadingCache<String, Optional<GradleProject>> projectCache;
+    private final Map<String, GradleProject> editedProjects = new LinkedHashMap<>();
+
+    public GradleMultiProject(File rootDirectory) throws IOException {
+        this(rootDirectory, DEFAULT_MAXIMUM_SOURCE_WEIGHT);
+    }
+
+    /**
+     * @param maximumSourceWeight Maximum count of source characters of all cached projects.
+     */
+    public GradleMultiProject(File rootDirectory, long maximumSourceWeight) throws IOException {
+        this.rootDirectory = rootDirectory;
+        this.settings = readSettings(rootDirectory);
+        // Single segment, otherwise the weight limit is divided between segments and LRU order is per segment
+        this.projectCache = CacheBuilder.newBuilder()
+                .concurrencyLevel(1)
+                .maximumWeight(maximumSourceWeight)
+                .weigher(new Weigher<String, Optional<GradleProject>>() {
+                    @Override
+                    public int weigh(String projectPath, Optional<GradleProject> project) {
+                        return project.isPresent() ? project.get().getSource().length() : ABSENT_PROJECT_WEIGHT;
+                    }
+                })
+                .build(new CacheLoader<String, Optional<GradleProject>>() {
+                    @Override
+                    public Optional<GradleProject> load(String projectPath) throws IOException {
+                        return loadProject(projectPath);
+                    }
+                });
+    }
+
+    public GradleSettings getSettings() {
+        return settings;
+    }
+
+    public List<String> getProjectPaths() {
+        return settings.getProjectPaths();
+    }
+
+    public List<String> getChildProjectPaths(String projectPath) {
+        return settings.getChildProjectPaths(projectPath);
+    }
+
+    /**
+     * Returns directory of given project, by default gradle uses path elements as directory names.
+     */
+    public File getProjectDirectory(String projectPath) {
+        checkArgument(settings.containsProject(projectPath), "Project %s is not included in settings", projectPath);
+        File directory = rootDirectory;
+        for (String name : projectPath.split(":")) {
+            if (!name.isEmpty()) {
+                directory = new File(directory, name);
+            }
+        }
+        return directory;
+    }
+
+    public File getBuildFile(String projectPath) {
+        return new File(getProjectDirectory(projectPath), BUILD_FILE);
+    }
+
+    /**
+     * Returns project with given path, reading its build file if it's neither cached nor edited.
+     * Project should be edited with {@link #edit(String, Function)}, otherwise its edits may be evicted.
+     *
+     * @return Absent if project doesn't have its own build file.
+     */
+    public Optional<GradleProject> getProject(String projectPath) throws IOException {
+        checkArgument(settings.containsProject(projectPath), "Project %s is not included in settings", projectPath);
+        GradleProject editedProject = editedProjects.get(projectPath);
+        if (editedProject != null) {
+            return Optional.of(editedProject);
+        }
+        try {
+            return projectCache.get(projectPath);
+        } catch (ExecutionException exception) {
+            Throwables.propagateIfInstanceOf(exception.getCause(), IOException.class);
+            throw Throwables.propagate(exception.getCause());
+        }
+    }
+
+    /**
+     * Applies edit to the project, which is then kept out of the cache until it's saved.
+     *
+     * @return Result of the edit, or absent if project doesn't have its own build file.
+     */
+    public <T> Optional<T> edit(String projectPath, Function<GradleProject, T> edit) throws IOException {
+        Optional<GradleProject> project = getProject(projectPath);
+        if (!project.isPresent()) {
+            return Optional.absent();
+        }
+        T result = edit.apply(project.get());
+        editedProjects.put(projectPath, project.get());
+        projectCache.invalidate(projectPath);
+        return Optional.of(result);
+    }
+
+    /**
+     * Writes edited project to its build file and returns it to the cache, where it's weighed again.
+     */
+    public void save(String projectPath) throws IOException {
+        GradleProject project = editedProjects.get(projectPath);
+        if (project == null) {
+            return;
+        }
+        Files.write(project.getSource(), getBuildFile(projectPath), Charset.defaultCharset());
+        editedProjects.remove(projectPath);
+        projectCache.put(projectPath, Optional.of(project));
+    }
+
+    public void saveAll() throws IOException {
+        for (String projectPath : new ArrayList<>(editedProjects.keySet())) {
+            save(projectPath);
+        }
+    }
+
+    /**
+     * @return Paths of projects with unsaved edits, in order in which they were first edited.
+     */
+    public Set<String> getEditedProjectPaths() {
+        return Collections.unmodifiableSet(editedProjects.keySet());
+    }
+
+    /**
+     * @return Count of cached and edited projects.
+     */
+    public long getLoadedProjectCount() {
+        return projectCache.size() + editedProjects.size();
+    }
+
+    /**
+     * Removes project from cache and discards its unsaved edits, so it will be read again on next access.
+     */
+    public void invalidate(String projectPath) {
+        editedProjects.remove(projectPath);
+        projectCache.invalidate(projectPath);
+    }
+
+    Optional<GradleProject> loadProject(String projectPath) throws IOException {
+        File buildFile = getBuildFile(projectPath);
+        if (!buildFile.isFile()) {
+            return Optional.absent();
+        }
+        String source = Files.toString(buildFile, Charset.defaultCharset());
+        return Optional.of(new GradleProject(source));
+    }
+
+    static GradleSettings readSettings(File rootDirectory) throws IOException {
+        File settingsFile = new File(rootDirectory, SETTINGS_FILE);
+        // Build without settings file is a single project build
+        String source = settingsFile.isFile() ? Files.toString(settingsFile, Charset.defaultCharset()) : "";
+        return new GradleSettings(source);
+    }
+}
@@ -5,8 +5,11 @@ import org.jboss.forge.parser.groovy.*;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
 
+import static com.google.common.base.Preconditions.checkState;
+
 /**
  * @author Adam Wyłuda
  */
@@ -14,47 +17,265 @@ public class GradleProject {
 
     public static final String DEPENDENCIES = "dependencies";
 
+    static final Comparator<SourceCodeElement> SOURCE_ORDER = new Comparator<SourceCodeElement>() {
+        @Override
+        public int compare(SourceCodeElement first, SourceCodeElement second) {
+            int result = Integer.compare(first.getLineNumber(), second.getLineNumber());
+            return result != 0 ? result : Integer.compare(first.getColumnNumber(), second.getColumnNumber());
+        }
+    };
+
     private String source;
+    private boolean dryRun;
+    private boolean tolerantParsing;
+    private SimpleGroovyParser parser;
+    private String parsedSource;
+    private EditJournal journal;
+    private int historyLimit = EditJournal.DEFAULT_HISTORY_LIMIT;
+    // Counts of source strings built from the journal and of parses, which show cost of edits
+    private int sourceBuildCount;
+    private int parseCount;
 
     public GradleProject(String source) {
         this.source = source;
     }
 
     public List<Dependency> getDependencies() {
-        SimpleGroovyParser groovyParser = new SimpleGroovyParser(source);
-        for (InvocationWithClosure invocation : groovyParser.getInvocationsWithClosure())  {
-            if (DEPENDENCIES.equals(invocation.getMethodName())) {
-                return readDependenciesFromInvocation(invocation);
-            }
+        List<Dependency> dependencies = new ArrayList<>();
+        for (DependencyDeclaration declaration : getDependencyDeclarations()) {
+            dependencies.add(declaration.getDependency());
         }
+        return dependencies;
+    }
+
+    /**
+     * Returns dependencies together with positions of their declarations.
+     * Tolerant project skips declarations which can't be read, like: compile 'a:b'.
+     */
+    public List<DependencyDeclaration> getDependencyDeclarations() {
+        Optional<InvocationWithClosure> dependenciesInvocation = findDependenciesInvocation();
         // If dependencies invocation was not found, we return empty list
-        return Collections.EMPTY_LIST;
+        if (!dependenciesInvocation.isPresent()) {
+            return Collections.emptyList();
+        }
+        return readDependenciesFromInvocation(dependenciesInvocation.get(), tolerantParsing);
+    }
+
+    /**
+     * Returns declarations in dependencies closure which couldn't be read, because their arguments refer to values
+     * not defined in this script, like: compile "com.foo:bar:$barVersion" or compile libraries.guava.
+     */
+    public List<UnresolvedInvocation> getUnresolvedDependencies() {
+        Optional<InvocationWithClosure> dependenciesInvocation = findDependenciesInvocation();
+        if (!dependenciesInvocation.isPresent()) {
+            return Collections.emptyList();
+        }
+        List<UnresolvedInvocation> unresolvedDependencies = new ArrayList<>();
+        for (UnresolvedInvocation invocation : dependenciesInvocation.get().getInternalUnresolvedInvocations()) {
+            if (Dependency.Type.fromMethodName(invocation.getMethodName()) != null) {
+                unresolvedDependencies.add(invocation);
+            }
+        }
+        return unresolvedDependencies;
+    }
+
+    /**
+     * Returns declarations in dependencies closure with a string which is not in group:name:version format,
+     * like: compile 'a:b'. Tolerant project skips them, strict project fails to read its dependencies.
+     */
+    public List<InvocationWithString> getUnreadableDependencies() {
+        Optional<InvocationWithClosure> dependenciesInvocation = findDependenciesInvocation();
+        if (!dependenciesInvocation.isPresent()) {
+            return Collections.emptyList();
+        }
+        List<InvocationWithString> unreadableDependencies = new ArrayList<>();
+        for (InvocationWithString invocation : dependenciesInvocation.get().getInternalStringInvocations()) {
+            Dependency.Type type = Dependency.Type.fromMethodName(invocation.getMethodName());
+            if (type != null) {
+                try {
+                    Dependency.fromString(invocation.getString(), type);
+                } catch (IllegalArgumentException exception) {
+                    unreadableDependencies.add(invocation);
+                }
+            }
+        }
+        return unreadableDependencies;
     }
 
-    public void addDependency(Dependency dependency) {
+    /**
+     * Adds dependency to the dependencies closure, creating the closure if it doesn't exist.
+     *
+     * @return Patches which were applied to the source, or would be applied in dry run mode.
+     */
+    public List<SourcePatch> addDependency(Dependency dependency) {
         Optional<InvocationWithClosure> dependenciesInvocation = findDependenciesInvocation();
+        SourcePatch patch;
         // If there was no dependencies closure
         if (!dependenciesInvocation.isPresent()) {
-            createDependenciesClosure();
-            dependenciesInvocation = findDependenciesInvocation();
+            // Strict project is validated before it's edited, even if the block was found without parsing
+            if (!tolerantParsing) {
+                getParser();
+            }
+            patch = createDependenciesClosure(dependency);
+        } else {
+            patch = addDependencyToSource(dependenciesInvocation.get(), dependency);
         }
-        addDependencyToSource(dependenciesInvocation.get(), dependency);
+        return applyPatches(Collections.singletonList(patch));
     }
 
-    public void removeDependency(Dependency dependency) {
+    /**
+     * Removes all declarations of given dependency.
+     *
+     * @return Patches which were applied to the source, or would be applied in dry run mode.
+     */
+    public List<SourcePatch> removeDependency(Dependency dependency) {
         Optional<InvocationWithClosure> dependenciesInvocation = findDependenciesInvocation();
         // If there is no dependencies closure then it will do nothing
-        if (dependenciesInvocation.isPresent()) {
-            removeDependencyFromSource(dependenciesInvocation.get(), dependency);
+        if (!dependenciesInvocation.isPresent()) {
+            return Collections.emptyList();
         }
+        return applyPatches(removeDependencyFromSource(dependenciesInvocation.get(), dependency));
     }
 
     public String getSource() {
+        // After an edit, undo or redo the journal holds the only copy of the source, string is built when it's needed
+        if (source == null) {
+            source = journal.getText().toString();
+            sourceBuildCount++;
+        }
         return source;
     }
 
+    public boolean canUndo() {
+        return journal != null && journal.canUndo();
+    }
+
+    public boolean canRedo() {
+        return journal != null && journal.canRedo();
+    }
+
+    /**
+     * Reverts the last edit.
+     *
+     * @return Patches which were applied to the source.
+     */
+    public List<SourcePatch> undo() {
+        if (!canUndo()) {
+            return Collections.emptyList();
+        }
+        List<SourcePatch> patches = journal.undo();
+        source = null;
+        return patches;
+    }
+
+    /**
+     * Repeats the last reverted edit.
+     *
+     * @return Patches which were applied to the source.
+     */
+    public List<SourcePatch> redo() {
+        if (!canRedo()) {
+            return Collections.emptyList();
+        }
+        List<SourcePatch> patches = journal.redo();
+        source = null;
+        return patches;
+    }
+
+    /**
+     * Squashes all edits made since the previous call into a single patch, which can be used to save the file.
+     * History of edits is replaced with a single step.
+     *
+     * @return Net patch, or empty list if source hasn't changed.
+     */
+    public List<SourcePatch> squashHistory() {
+        return journal != null ? journal.squash() : Collections.<SourcePatch>emptyList();
+    }
+
+    /**
+     * Sets count of edits which can be undone, it must be set before the first edit.
+     */
+    public void setHistoryLimit(int historyLimit) {
+        checkState(journal == null, "History limit must be set before the first edit");
+        this.historyLimit = historyLimit;
+    }
+
+    public boolean isTolerantParsing() {
+        return tolerantParsing;
+    }
+
+    /**
+     * In tolerant parsing mode statements with syntax errors are skipped, instead of failing every query.
+     * Skipped statements are available as {@link #getParseDiagnostics()}.
+     */
+    public void setTolerantParsing(boolean tolerantParsing) {
+        if (this.tolerantParsing != tolerantParsing) {
+            this.tolerantParsing = tolerantParsing;
+            parser = null;
+        }
+    }
+
+    /**
+     * @return Fragments of source skipped because of syntax errors, always empty if parsing is not tolerant.
+     */
+    public List<ParseDiagnostic> getParseDiagnostics() {
+        return getParser().getDiagnostics();
+    }
+
+    public boolean isDryRun() {
+        return dryRun;
+    }
+
+    /**
+     * In dry run mode modifying methods only compute patches, without changing the source.
+     */
+    public void setDryRun(boolean dryRun) {
+        this.dryRun = dryRun;
+    }
+
+    List<SourcePatch> applyPatches(List<SourcePatch> patches) {
+        if (!dryRun && !patches.isEmpty()) {
+            // Journal is created on the first edit, so read only projects don't pay for it
+            if (journal == null) {
+                journal = new EditJournal(getSource(), historyLimit);
+            }
+            journal.record(patches);
+            source = null;
+        }
+        return patches;
+    }
+
+    /**
+     * Returns parser of current source, source is parsed again only if it has changed since the last call.
+     */
+    SimpleGroovyParser getParser() {
+        // Every modification creates a new source string, so comparing references is enough
+        String currentSource = getSource();
+        if (parser == null || parsedSource != currentSource) {
+            parser = new SimpleGroovyParser(currentSource, tolerantParsing);
+            parsedSource = currentSource;
+            parseCount++;
+        }
+        return parser;
+    }
+
+    int getSourceBuildCount() {
+        return sourceBuildCount;
+    }
+
+    int getParseCount() {
+        return parseCount;
+    }
+
     Optional<InvocationWithClosure> findDependenciesInvocation() {
-        SimpleGroovyParser groovyParser = new SimpleGroovyParser(source);
+        // Source without dependencies block doesn't have to be parsed, so groovy classes are not even loaded.
+        // Strict project is parsed anyway if a bracket, string or comment isn't closed, as the error could hide
+        // the block, other syntax errors are reported before the block is created.
+        String source = getSource();
+        if (!source.contains(DEPENDENCIES) && (tolerantParsing || SourceUtil.hasBalancedBrackets(source))) {
+            return Optional.absent();
+        }
+        SimpleGroovyParser groovyParser = getParser();
         for (InvocationWithClosure invocation : groovyParser.getInvocationsWithClosure())  {
             if (DEPENDENCIES.equals(invocation.getMethodName())) {
                 return Optional.of(invocation);
@@ -64,73 +285,183 @@ public class GradleProject {
     }
 
     /**
-     * Appends dependencies definition closure at the end of the source.
+     * Appends dependencies definition closure with given dependency at the end of the source.
      */
-    void createDependenciesClosure() {
-        source += "\ndependencies {\n    \n}\n";
+    SourcePatch createDependenciesClosure(Dependency dependency) {
+        String source = getSource();
+        String lineSeparator = lineSeparator(source);
+        String closure = lineSeparator + "dependencies {" + lineSeparator + dependencyLine(dependency, lineSeparator) +
+                "}" + lineSeparator;
+        return SourcePatch.insertion(source.length(), closure);
     }
 
     /**
      * Adds new line to dependencies closure with new dependency invocation.
      */
-    void addDependencyToSource(InvocationWithClosure dependenciesClosure, Dependency dependency) {
-        String line = String.format("    %s '%s'\n", dependency.getType().getMethodName(), dependency.toGradleString());
-
+    SourcePatch addDependencyToSource(InvocationWithClosure dependenciesClosure, Dependency dependency) {
+        String source = getSource();
         // Closure is always composed of '{' and '}' characters, so we will insert our dependency just before '}'
         int lineNumber = dependenciesClosure.getLastLineNumber();
         int columnNumber = dependenciesClosure.getLastColumnNumber();
         columnNumber--;
 
-        source = SourceUtil.insertString(source, line, lineNumber, columnNumber);
+        int position = SourceUtil.positionInSource(source, lineNumber, columnNumber);
+        String lineSeparator = lineSeparator(source);
+        int lineStartPosition = source.lastIndexOf('\n', position - 1) + 1;
+        // Closing '}' shares the line with other statements, like: dependencies { compile 'a:b:1' },
+        // so it's moved to a new line and whitespace before it is replaced
+        if (!source.substring(lineStartPosition, position).trim().isEmpty()) {
+            int contentEnd = position;
+            while (Character.isWhitespace(source.charAt(contentEnd - 1))) {
+                contentEnd--;
+            }
+            return new SourcePatch(contentEnd, position - contentEnd,
+                    lineSeparator + dependencyLine(dependency, lineSeparator));
+        }
+        return SourcePatch.insertion(position, dependencyLine(dependency, lineSeparator));
+    }
+
+    static String dependencyLine(Dependency dependency, String lineSeparator) {
+        return String.format("    %s '%s'%s", dependency.getType().getMethodName(), dependency.toGradleString(), lineSeparator);
     }
 
     /**
-     * Removes statically defined dependency, it doesn't work for dynamic dependencies.
+     * New lines are ended the same way as existing ones, so sources with Windows line endings stay consistent.
      */
-    void removeDependencyFromSource(InvocationWithClosure dependenciesClosure, Dependency dependency) {
-        SimpleGroovyParser groovyParser = new SimpleGroovyParser(source);
-        String dependencyGradleString = dependency.toGradleString();
+    static String lineSeparator(String source) {
+        return source.contains("\r\n") ? "\r\n" : "\n";
+    }
 
+    /**
+     * Removes statically defined dependency, it doesn't work for dynamic dependencies.
+     * All patches are computed against current source, so they are returned from the last to the first one.
+     */
+    List<SourcePatch> removeDependencyFromSource(InvocationWithClosure dependenciesClosure, Dependency dependency) {
+        List<SourcePatch> patches = new ArrayList<>();
         SourceCodeElement previousInvocation = null;
-        // Search in invocations with string parameter
-        for (InvocationWithString invocation : dependenciesClosure.getInternalStringInvocations()) {
-            if (invocation.getMethodName().equals(dependency.getType().getMethodName()) &&
-                    invocation.getString().equals(dependencyGradleString)) {
-                removeDependencyInvocationFromSource(dependenciesClosure, previousInvocation, invocation);
+        // Invocations are visited in source order, so previous invocation is really the preceding one
+        for (SourceCodeElement invocation : internalInvocationsInSourceOrder(dependenciesClosure)) {
+            if (declaresDependency(dependenciesClosure, invocation, dependency)) {
+                SourcePatch patch = removeInvocationFromSource(dependenciesClosure, previousInvocation, invocation);
+                addDeletion(patches, patch);
             }
             previousInvocation = invocation;
         }
-        // Search in invocations with map parameter
-        for (InvocationWithMap invocation : dependenciesClosure.getInternalMapInvocations()) {
-            if (invocation.getMethodName().equals(dependency.getType().getMethodName())) {
-                Dependency dependencyFromInvocation =
-                        Dependency.fromMap(invocation.getParameters(), Dependency.Type.fromMethodName(invocation.getMethodName()));
-                if (dependencyFromInvocation.equals(dependency)) {
-                    removeDependencyInvocationFromSource(dependenciesClosure, previousInvocation, invocation);
-                }
+        Collections.reverse(patches);
+        return patches;
+    }
+
+    static boolean declaresDependency(InvocationWithClosure dependenciesClosure, SourceCodeElement invocation,
+                                      Dependency dependency) {
+        String methodName = dependency.getType().getMethodName();
+        if (invocation instanceof InvocationWithString) {
+            InvocationWithString stringInvocation = (InvocationWithString) invocation;
+            return stringInvocation.getMethodName().equals(methodName) &&
+                    stringInvocation.getString().equals(dependency.toGradleString()) &&
+                    !isSharedInvocation(dependenciesClosure, stringInvocation);
+        }
+        if (invocation instanceof InvocationWithMap) {
+            InvocationWithMap mapInvocation = (InvocationWithMap) invocation;
+            return mapInvocation.getMethodName().equals(methodName) &&
+                    Dependency.fromMap(mapInvocation.getParameters(), dependency.getType()).equals(dependency);
+        }
+        return false;
+    }
+
+    static List<SourceCodeElement> internalInvocationsInSourceOrder(InvocationWithClosure closure) {
+        List<SourceCodeElement> invocations = new ArrayList<>();
+        invocations.addAll(closure.getInternalInvocations());
+        invocations.addAll(closure.getInternalStringInvocations());
+        invocations.addAll(closure.getInternalMapInvocations());
+        invocations.addAll(closure.getInternalUnresolvedInvocations());
+        invocations.addAll(closure.getInternalInvocationsWithoutArguments());
+        Collections.sort(invocations, SOURCE_ORDER);
+        return invocations;
+    }
+
+    /**
+     * Adds deletion to the list of deletions sorted by offset, merging it with the last one if they overlap.
+     */
+    static void addDeletion(List<SourcePatch> patches, SourcePatch patch) {
+        if (!patches.isEmpty()) {
+            SourcePatch lastPatch = patches.get(patches.size() - 1);
+            int lastPatchEnd = lastPatch.getOffset() + lastPatch.getDeleteLength();
+            if (patch.getOffset() < lastPatchEnd) {
+                int end = Math.max(lastPatchEnd, patch.getOffset() + patch.getDeleteLength());
+                patches.set(patches.size() - 1, SourcePatch.deletion(lastPatch.getOffset(), end - lastPatch.getOffset()));
+                return;
+            }
+        }
+        patches.add(patch);
+    }
+
+    /**
+     * Checks if invocation is one of the arguments of a multi-argument invocation, like: compile 'a:b:1', 'c:d:2'.
+     * Such invocation can't be removed without removing its siblings.
+     */
+    static boolean isSharedInvocation(InvocationWithClosure closure, InvocationWithString invocation) {
+        for (InvocationWithString otherInvocation : closure.getInternalStringInvocations()) {
+            if (otherInvocation != invocation &&
+                    otherInvocation.getLineNumber() == invocation.getLineNumber() &&
+                    otherInvocation.getColumnNumber() == invocation.getColumnNumber()) {
+                return true;
             }
-            previousInvocation = invocation;
         }
+        return false;
     }
 
-    void removeDependencyInvocationFromSource(InvocationWithClosure dependenciesClosure, SourceCodeElement previousInvocation,
-                                              SourceCodeElement dependencyInvocation) {
-        int lineNumber = previousInvocation != null ? previousInvocation.getLastLineNumber() : dependenciesClosure.getLineNumber();
-        int positionOfDependenciesInvocation =
-                SourceUtil.positionInSource(source, dependenciesClosure.getLineNumber(), dependenciesClosure.getColumnNumber());
-        int columnNumber = previousInvocation != null ? previousInvocation.getLastColumnNumber()
-                : source.substring(positionOfDependenciesInvocation).indexOf("{") + 2;
-        // + 2 because + 1 as we want next char, and +1 because it's column number which is indexed from 1
-        int lastLineNumber = dependencyInvocation.getLastLineNumber();
-        int lastColumnNumber = dependencyInvocation.getLastColumnNumber();
-        source = SourceUtil.removeSourceFragment(source, lineNumber, columnNumber, lastLineNumber, lastColumnNumber);
+    /**
+     * If the invocation is the only statement in its lines, whole lines are removed together with trailing comment.
+     * Otherwise source is removed from the end of previous invocation (or opening '{') to the end of the invocation.
+     */
+    SourcePatch removeInvocationFromSource(InvocationWithClosure closure, SourceCodeElement previousInvocation,
+                                           SourceCodeElement invocation) {
+        String source = getSource();
+        int startPosition = SourceUtil.positionInSource(source,
+                invocation.getLineNumber(), invocation.getColumnNumber());
+        int endPosition = SourceUtil.positionInSource(source,
+                invocation.getLastLineNumber(), invocation.getLastColumnNumber());
+
+        int lineStartPosition = source.lastIndexOf('\n', startPosition - 1) + 1;
+        int lineEndPosition = source.indexOf('\n', endPosition);
+        lineEndPosition = lineEndPosition >= 0 ? lineEndPosition + 1 : source.length();
+        String textBefore = source.substring(lineStartPosition, startPosition).trim();
+        String textAfter = source.substring(endPosition, lineEndPosition).trim();
+        if (textBefore.isEmpty() && (textAfter.isEmpty() || textAfter.startsWith("//"))) {
+            return SourcePatch.deletion(lineStartPosition, lineEndPosition - lineStartPosition);
+        }
+        // Statement followed by another one in the same line is removed with the separator, like: compile 'a:b:1';
+        if (textAfter.startsWith(";")) {
+            int separatorEnd = source.indexOf(';', endPosition) + 1;
+            while (separatorEnd < lineEndPosition && (source.charAt(separatorEnd) == ' ' || source.charAt(separatorEnd) == '\t')) {
+                separatorEnd++;
+            }
+            return SourcePatch.deletion(startPosition, separatorEnd - startPosition);
+        }
+
+        int beginningPosition;
+        if (previousInvocation != null) {
+            beginningPosition = SourceUtil.positionInSource(source,
+                    previousInvocation.getLastLineNumber(), previousInvocation.getLastColumnNumber());
+        }
+        // Top level of the script has no opening '{', so only the invocation itself is removed
+        else if (closure.getLineNumber() == 0) {
+            beginningPosition = startPosition;
+        } else {
+            int positionOfClosure = SourceUtil.positionInSource(source,
+                    closure.getLineNumber(), closure.getColumnNumber());
+            // + 1 as we want the character after '{'
+            beginningPosition = source.indexOf('{', positionOfClosure) + 1;
+        }
+        return SourcePatch.deletion(beginningPosition, endPosition - beginningPosition);
     }
 
-    static List<Dependency> readDependenciesFromInvocation(InvocationWithClosure dependenciesInvocation) {
-        List<Dependency> dependencies = new ArrayList<>();
+    static List<DependencyDeclaration> readDependenciesFromInvocation(InvocationWithClosure dependenciesInvocation,
+                                                                      boolean tolerant) {
+        List<DependencyDeclaration> dependencies = new ArrayList<>();
         // Read dependencies in a form of invocation with a constant, like: testRuntime 'a:b:1'
         for (InvocationWithString invocation : dependenciesInvocation.getInternalStringInvocations()) {
-            processStringInvocation(dependencies, invocation);
+            processStringInvocation(dependencies, invocation, tolerant);
         }
         // Read dependencies in a form of invocation with a map, like: compile group: 'a', name: 'b', version: '1'
         for (InvocationWithMap invocation : dependenciesInvocation.getInternalMapInvocations()) {
@@ -139,21 +470,34 @@ public class GradleProject {
         return dependencies;
     }
 
-    static void processStringInvocation(List<Dependency> dependencies, InvocationWithString invocation) {
+    /**
+     * String which is not in group:name:version format, like 'a:b' or 'a:b:1:jdk15', fails unless reading is tolerant,
+     * then the declaration is skipped.
+     */
+    static void processStringInvocation(List<DependencyDeclaration> dependencies, InvocationWithString invocation,
+                                        boolean tolerant) {
         for (Dependency.Type type : Dependency.Type.values()) {
             if (type.getMethodName().equals(invocation.getMethodName())) {
-                Dependency dependency = Dependency.fromString(invocation.getString(), type);
-                dependencies.add(dependency);
+                Dependency dependency;
+                try {
+                    dependency = Dependency.fromString(invocation.getString(), type);
+                } catch (IllegalArgumentException exception) {
+                    if (!tolerant) {
+                        throw exception;
+                    }
+                    return;
+                }
+                dependencies.add(new DependencyDeclaration(dependency, invocation));
                 return;
             }
         }
     }
 
-    static void processMapInvocation(List<Dependency> dependencies, InvocationWithMap invocation) {
+    static void processMapInvocation(List<DependencyDeclaration> dependencies, InvocationWithMap invocation) {
         for (Dependency.Type type : Dependency.Type.values()) {
             if (type.getMethodName().equals(invocation.getMethodName())) {
                 Dependency dependency = Dependency.fromMap(invocation.getParameters(), type);
-                dependencies.add(dependency);
+                dependencies.add(new DependencyDeclaration(dependency, invocation));
                 return;
             }
         }
@@ -0,0 +1,94 @@
+package org.jboss.forge.project;
+
+import org.jboss.forge.parser.groovy.InvocationWithString;
+import org.jboss.forge.parser.groovy.SimpleGroovyParser;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Represents settings.gradle file of multi-project build.
+ * Project hierarchy is read from include invocations, like: include 'api', 'services:user'
+ *
+ * @author Adam Wyłuda
+ */
+public class GradleSettings {
+
+    public static final String INCLUDE = "include";
+    public static final String ROOT_PROJECT_PATH = ":";
+
+    private final String source;
+    private final Set<String> projectPaths;
+
+    public GradleSettings(String source) {
+        this.source = source;
+        this.projectPaths = readProjectPaths(source);
+    }
+
+    public String getSource() {
+        return source;
+    }
+
+    /**
+     * @return Paths of all included projects (like ":services:user"), without the root project.
+     */
+    public List<String> getProjectPaths() {
+        return new ArrayList<>(projectPaths);
+    }
+
+    public boolean containsProject(String projectPath) {
+        return ROOT_PROJECT_PATH.equals(projectPath) || projectPaths.contains(projectPath);
+    }
+
+    /**
+     * @return Paths of projects which are direct children of given project.
+     */
+    public List<String> getChildProjectPaths(String projectPath) {
+        checkArgument(containsProject(projectPath), "Project %s is not included in settings", projectPath);
+        List<String> children = new ArrayList<>();
+        for (String path : projectPaths) {
+            if (projectPath.equals(parentPath(path))) {
+                children.add(path);
+            }
+        }
+        return children;
+    }
+
+    static Set<String> readProjectPaths(String source) {
+        Set<String> paths = new LinkedHashSet<>();
+        SimpleGroovyParser groovyParser = new SimpleGroovyParser(source);
+        for (InvocationWithString invocation : groovyParser.getInvocationsWithString()) {
+            if (INCLUDE.equals(invocation.getMethodName())) {
+                addProjectPath(paths, normalizePath(invocation.getString()));
+            }
+        }
+        return paths;
+    }
+
+    /**
+     * Adds project with all of its ancestors, as gradle does for include 'a:b'.
+     */
+    static void addProjectPath(Set<String> paths, String projectPath) {
+        String parentPath = parentPath(projectPath);
+        if (!ROOT_PROJECT_PATH.equals(parentPath)) {
+            addProjectPath(paths, parentPath);
+        }
+        paths.add(projectPath);
+    }
+
+    /**
+     * Converts included project name to absolute project path, for example "a:b" to ":a:b".
+     */
+    static String normalizePath(String include) {
+        return include.startsWith(ROOT_PROJECT_PATH) ? include : ROOT_PROJECT_PATH + include;
+    }
+
+    static String parentPath(String projectPath) {
+        int lastSeparator = projectPath.lastIndexOf(':');
+        return lastSeparator <= 0 ? ROOT_PROJECT_PATH : projectPath.substring(0, lastSeparator);
+    }
+}
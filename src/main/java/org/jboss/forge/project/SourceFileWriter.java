@@ -0,0 +1,101 @@
+package org.jboss.forge.project;
+
+import com.google.common.io.Files;
+import org.jboss.forge.parser.groovy.SourcePatch;
+import org.jboss.forge.parser.groovy.SourceUtil;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.List;
+
+/**
+ * Writes modified source back to its file.
+ *
+ * @author Adam Wyłuda
+ */
+public class SourceFileWriter {
+
+    private final File file;
+    private final Charset charset;
+
+    public SourceFileWriter(File file, Charset charset) {
+        this.file = file;
+        this.charset = charset;
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    /**
+     * Rewrites whole file with given source.
+     */
+    public void write(String source) throws IOException {
+        Files.write(source, file, charset);
+    }
+
+    /**
+     * Writes patches made to the source which is currently stored in the file.
+     * If none of the patches changes length of the encoded file, only the affected bytes are written,
+     * otherwise the whole file is rewritten.
+     */
+    public void write(String originalSource, List<SourcePatch> patches) throws IOException {
+        if (patches.isEmpty()) {
+            return;
+        }
+        try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+             FileChannel channel = randomAccessFile.getChannel()) {
+            write(channel, originalSource, patches);
+        }
+    }
+
+    /**
+     * Same as {@link #write(String, List)}, but writes through given channel of the file, which may be locked.
+     */
+    public void write(FileChannel channel, String originalSource, List<SourcePatch> patches) throws IOException {
+        if (patches.isEmpty()) {
+            return;
+        }
+        if (!isBytesLengthPreserving(originalSource, patches)) {
+            ByteBuffer buffer = charset.encode(SourceUtil.applyPatches(originalSource, patches));
+            long bytePosition = 0;
+            while (buffer.hasRemaining()) {
+                bytePosition += channel.write(buffer, bytePosition);
+            }
+            channel.truncate(bytePosition);
+            return;
+        }
+        String source = originalSource;
+        for (SourcePatch patch : patches) {
+            long bytePosition = encodedLength(source, 0, patch.getOffset());
+            ByteBuffer buffer = charset.encode(patch.getInsertText());
+            while (buffer.hasRemaining()) {
+                bytePosition += channel.write(buffer, bytePosition);
+            }
+            source = patch.applyTo(source);
+        }
+    }
+
+    boolean isBytesLengthPreserving(String source, List<SourcePatch> patches) {
+        for (SourcePatch patch : patches) {
+            if (!patch.isLengthPreserving()) {
+                return false;
+            }
+            int end = patch.getOffset() + patch.getDeleteLength();
+            if (encodedLength(source, patch.getOffset(), end) != encodedLength(patch.getInsertText(), 0, patch.getInsertText().length())) {
+                return false;
+            }
+            source = patch.applyTo(source);
+        }
+        return true;
+    }
+
+    int encodedLength(String string, int start, int end) {
+        return charset.encode(CharBuffer.wrap(string, start, end)).remaining();
+    }
+}
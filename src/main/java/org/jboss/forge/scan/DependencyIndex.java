@@ -0,0 +1,315 @@
+package org.jboss.forge.scan;
+
+import com.google.common.collect.ImmutableList;
+import org.jboss.forge.parser.groovy.SourceCodeElement;
+import org.jboss.forge.project.Dependency;
+import org.jboss.forge.project.DependencyDeclaration;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * Inverted index from artifacts (group and name) to modules which declare them.
+ * <p/>
+ * Index is kept up to date by passing it as a listener to {@link ProjectScanner}, so only changed modules are
+ * reindexed. Declarations of every artifact are kept sorted by precompiled {@link VersionKey} and grouped by module,
+ * so version range queries don't compare versions of all declarations and updating a module doesn't shift
+ * declarations of other modules. Queries return copies, which are not affected by later updates.
+ *
+ * @author Adam Wyłuda
+ */
+public class DependencyIndex implements ScanListener {
+
+    private static final int MAGIC = 0x47534449;
+    private static final int FORMAT_VERSION = 1;
+
+    private final Map<String, ArtifactDeclarations> declarationsByArtifact = new HashMap<>();
+    private final Map<String, List<IndexedDeclaration>> declarationsByModule = new HashMap<>();
+
+    /**
+     * Reads index written by {@link #write(File)}, if the file doesn't exist empty index is returned.
+     */
+    public static DependencyIndex read(File indexFile) throws IOException {
+        DependencyIndex index = new DependencyIndex();
+        if (!indexFile.isFile()) {
+            return index;
+        }
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(indexFile)))) {
+            if (input.readInt() != MAGIC || input.readInt() != FORMAT_VERSION) {
+                throw new IOException("Unsupported dependency index file: " + indexFile);
+            }
+            int moduleCount = input.readInt();
+            for (int moduleIndex = 0; moduleIndex < moduleCount; moduleIndex++) {
+                String module = input.readUTF();
+                int declarationCount = input.readInt();
+                List<DependencyDeclaration> declarations = new ArrayList<>(declarationCount);
+                for (int declarationIndex = 0; declarationIndex < declarationCount; declarationIndex++) {
+                    Dependency dependency = new Dependency(readNullableString(input), readNullableString(input),
+                            readNullableString(input), Dependency.Type.fromMethodName(input.readUTF()));
+                    declarations.add(new DependencyDeclaration(dependency,
+                            input.readInt(), input.readInt(), input.readInt(), input.readInt()));
+                }
+                index.update(module, declarations);
+            }
+        }
+        return index;
+    }
+
+    public void write(File indexFile) throws IOException {
+        try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(indexFile)))) {
+            output.writeInt(MAGIC);
+            output.writeInt(FORMAT_VERSION);
+            output.writeInt(declarationsByModule.size());
+            for (Map.Entry<String, List<IndexedDeclaration>> entry : declarationsByModule.entrySet()) {
+                output.writeUTF(entry.getKey());
+                output.writeInt(entry.getValue().size());
+                for (IndexedDeclaration declaration : entry.getValue()) {
+                    Dependency dependency = declaration.getDependency();
+                    writeNullableString(output, dependency.getGroupId());
+                    writeNullableString(output, dependency.getArtifactId());
+                    writeNullableString(output, dependency.getVersion());
+                    output.writeUTF(dependency.getType().getMethodName());
+                    output.writeInt(declaration.getLineNumber());
+                    output.writeInt(declaration.getColumnNumber());
+                    output.writeInt(declaration.getLastLineNumber());
+                    output.writeInt(declaration.getLastColumnNumber());
+                }
+            }
+        }
+    }
+
+    @Override
+    public void moduleChanged(ModuleScanResult result) {
+        update(result.getPath(), result.getDependencyDeclarations());
+    }
+
+    @Override
+    public void moduleRemoved(String path) {
+        remove(path);
+    }
+
+    /**
+     * Replaces all declarations of given module.
+     */
+    public void update(String module, List<DependencyDeclaration> declarations) {
+        remove(module);
+        if (declarations.isEmpty()) {
+            return;
+        }
+        List<IndexedDeclaration> moduleDeclarations = new ArrayList<>(declarations.size());
+        for (DependencyDeclaration declaration : declarations) {
+            IndexedDeclaration indexedDeclaration = new IndexedDeclaration(module, declaration);
+            moduleDeclarations.add(indexedDeclaration);
+            Dependency dependency = declaration.getDependency();
+            String artifactKey = artifactKey(dependency.getGroupId(), dependency.getArtifactId());
+            ArtifactDeclarations artifactDeclarations = declarationsByArtifact.get(artifactKey);
+            if (artifactDeclarations == null) {
+                artifactDeclarations = new ArtifactDeclarations();
+                declarationsByArtifact.put(artifactKey, artifactDeclarations);
+            }
+            artifactDeclarations.add(indexedDeclaration);
+        }
+        declarationsByModule.put(module, moduleDeclarations);
+    }
+
+    public void remove(String module) {
+        List<IndexedDeclaration> moduleDeclarations = declarationsByModule.remove(module);
+        if (moduleDeclarations == null) {
+            return;
+        }
+        for (IndexedDeclaration declaration : moduleDeclarations) {
+            Dependency dependency = declaration.getDependency();
+            String artifactKey = artifactKey(dependency.getGroupId(), dependency.getArtifactId());
+            ArtifactDeclarations artifactDeclarations = declarationsByArtifact.get(artifactKey);
+            // Artifact declared more than once in the module may have been removed already
+            if (artifactDeclarations == null) {
+                continue;
+            }
+            artifactDeclarations.remove(declaration);
+            if (artifactDeclarations.isEmpty()) {
+                declarationsByArtifact.remove(artifactKey);
+            }
+        }
+    }
+
+    public int getModuleCount() {
+        return declarationsByModule.size();
+    }
+
+    /**
+     * @return All declarations of given artifact, declarations without version first, others sorted by version.
+     */
+    public List<IndexedDeclaration> find(String groupId, String artifactId) {
+        return find(groupId, artifactId, null, null);
+    }
+
+    /**
+     * Finds declarations of given artifact with version in range [lowerVersion, upperVersion),
+     * for example all versions of guava below 15.0: find("com.google.guava", "guava", null, "15.0").
+     * Declarations without version are returned only if there are no bounds.
+     *
+     * @param lowerVersion Inclusive lower bound, or null if there is none.
+     * @param upperVersion Exclusive upper bound, or null if there is none.
+     * @return Declarations sorted by version, the list is immutable.
+     */
+    public List<IndexedDeclaration> find(String groupId, String artifactId, String lowerVersion, String upperVersion) {
+        ArtifactDeclarations artifactDeclarations = declarationsByArtifact.get(artifactKey(groupId, artifactId));
+        if (artifactDeclarations == null) {
+            return ImmutableList.of();
+        }
+        return artifactDeclarations.find(lowerVersion != null ? VersionKey.of(lowerVersion) : null,
+                upperVersion != null ? VersionKey.of(upperVersion) : null);
+    }
+
+    static String artifactKey(String groupId, String artifactId) {
+        return groupId + ":" + artifactId;
+    }
+
+    static String readNullableString(DataInputStream input) throws IOException {
+        return input.readBoolean() ? input.readUTF() : null;
+    }
+
+    static void writeNullableString(DataOutputStream output, String string) throws IOException {
+        output.writeBoolean(string != null);
+        if (string != null) {
+            output.writeUTF(string);
+        }
+    }
+
+    /**
+     * Declarations of a single artifact, sorted by version and grouped by module. Declarations with the same
+     * version stay in order of updates of their modules.
+     */
+    static class ArtifactDeclarations {
+
+        // Declarations without version, or with an empty one, don't belong to any version range
+        private final Map<String, List<IndexedDeclaration>> unversionedDeclarations = new LinkedHashMap<>();
+        private final NavigableMap<VersionKey, Map<String, List<IndexedDeclaration>>> versionedDeclarations =
+                new TreeMap<>();
+
+        void add(IndexedDeclaration declaration) {
+            Map<String, List<IndexedDeclaration>> moduleDeclarations = moduleDeclarations(declaration);
+            if (moduleDeclarations == null) {
+                moduleDeclarations = new LinkedHashMap<>();
+                versionedDeclarations.put(declaration.getVersionKey(), moduleDeclarations);
+            }
+            List<IndexedDeclaration> declarations = moduleDeclarations.get(declaration.getModule());
+            if (declarations == null) {
+                declarations = new ArrayList<>(1);
+                moduleDeclarations.put(declaration.getModule(), declarations);
+            }
+            declarations.add(declaration);
+        }
+
+        /**
+         * Removes all declarations of the module with the same version as given declaration.
+         */
+        void remove(IndexedDeclaration declaration) {
+            Map<String, List<IndexedDeclaration>> moduleDeclarations = moduleDeclarations(declaration);
+            if (moduleDeclarations != null) {
+                moduleDeclarations.remove(declaration.getModule());
+                if (moduleDeclarations.isEmpty() && isVersioned(declaration)) {
+                    versionedDeclarations.remove(declaration.getVersionKey());
+                }
+            }
+        }
+
+        Map<String, List<IndexedDeclaration>> moduleDeclarations(IndexedDeclaration declaration) {
+            return isVersioned(declaration) ?
+                    versionedDeclarations.get(declaration.getVersionKey()) : unversionedDeclarations;
+        }
+
+        List<IndexedDeclaration> find(VersionKey lowerVersion, VersionKey upperVersion) {
+            ImmutableList.Builder<IndexedDeclaration> builder = ImmutableList.builder();
+            if (lowerVersion == null && upperVersion == null) {
+                addAll(builder, unversionedDeclarations);
+            }
+            Map<VersionKey, Map<String, List<IndexedDeclaration>>> range = versionedDeclarations;
+            if (lowerVersion != null && upperVersion != null) {
+                range = lowerVersion.compareTo(upperVersion) < 0 ?
+                        versionedDeclarations.subMap(lowerVersion, true, upperVersion, false)
+                        : Collections.<VersionKey, Map<String, List<IndexedDeclaration>>>emptyMap();
+            } else if (lowerVersion != null) {
+                range = versionedDeclarations.tailMap(lowerVersion, true);
+            } else if (upperVersion != null) {
+                range = versionedDeclarations.headMap(upperVersion, false);
+            }
+            for (Map<String, List<IndexedDeclaration>> moduleDeclarations : range.values()) {
+                addAll(builder, moduleDeclarations);
+            }
+            return builder.build();
+        }
+
+        static void addAll(ImmutableList.Builder<IndexedDeclaration> builder,
+                           Map<String, List<IndexedDeclaration>> moduleDeclarations) {
+            for (List<IndexedDeclaration> declarations : moduleDeclarations.values()) {
+                builder.addAll(declarations);
+            }
+        }
+
+        static boolean isVersioned(IndexedDeclaration declaration) {
+            String version = declaration.getDependency().getVersion();
+            return version != null && !version.isEmpty();
+        }
+
+        boolean isEmpty() {
+            return unversionedDeclarations.isEmpty() && versionedDeclarations.isEmpty();
+        }
+    }
+
+    /**
+     * Declaration of a dependency in given module, with its precompiled version key.
+     */
+    public static class IndexedDeclaration extends SourceCodeElement {
+
+        private final String module;
+        private final Dependency dependency;
+        private final VersionKey versionKey;
+
+        IndexedDeclaration(String module, DependencyDeclaration declaration) {
+            super(declaration.getLineNumber(), declaration.getColumnNumber(),
+                    declaration.getLastLineNumber(), declaration.getLastColumnNumber());
+            this.module = module;
+            this.dependency = declaration.getDependency();
+            this.versionKey = VersionKey.of(dependency.getVersion());
+        }
+
+        public String getModule() {
+            return module;
+        }
+
+        public Dependency getDependency() {
+            return dependency;
+        }
+
+        /**
+         * @return Configuration in which dependency is declared.
+         */
+        public Dependency.Type getType() {
+            return dependency.getType();
+        }
+
+        public VersionKey getVersionKey() {
+            return versionKey;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s %s at %d:%d", module, dependency, getLineNumber(), getColumnNumber());
+        }
+    }
+}
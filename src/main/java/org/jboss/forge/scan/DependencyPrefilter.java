@@ -0,0 +1,110 @@
+package org.jboss.forge.scan;
+
+import com.google.common.base.Charsets;
+import org.jboss.forge.project.Dependency;
+import org.jboss.forge.project.GradleProject;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+/**
+ * Checks raw bytes of a build file for tokens which every dependency declaration needs: the name of dependencies
+ * block and one of configuration names. File without them can't declare any dependency, so it doesn't have
+ * to be parsed. Tokens in comments or strings are also found, so the check may only give false positives.
+ * <p/>
+ * Bytes are compared directly, so the check works only for charsets which encode the tokens as ASCII.
+ *
+ * @author Adam Wyłuda
+ */
+public class DependencyPrefilter {
+
+    private static final byte[] DEPENDENCIES_TOKEN = GradleProject.DEPENDENCIES.getBytes(Charsets.US_ASCII);
+    private static final byte[][] METHOD_NAME_TOKENS;
+    // Tokens are compared only at positions where one of them may start
+    private static final boolean[] FIRST_BYTES = new boolean[256];
+
+    static {
+        Dependency.Type[] types = Dependency.Type.values();
+        METHOD_NAME_TOKENS = new byte[types.length][];
+        for (int index = 0; index < types.length; index++) {
+            METHOD_NAME_TOKENS[index] = types[index].getMethodName().getBytes(Charsets.US_ASCII);
+            FIRST_BYTES[METHOD_NAME_TOKENS[index][0] & 0xFF] = true;
+        }
+        FIRST_BYTES[DEPENDENCIES_TOKEN[0] & 0xFF] = true;
+    }
+
+    /**
+     * @return True if build files encoded with given charset can be checked.
+     */
+    public static boolean supports(Charset charset) {
+        if (!Arrays.equals(DEPENDENCIES_TOKEN, GradleProject.DEPENDENCIES.getBytes(charset))) {
+            return false;
+        }
+        for (Dependency.Type type : Dependency.Type.values()) {
+            if (!Arrays.equals(type.getMethodName().getBytes(Charsets.US_ASCII), type.getMethodName().getBytes(charset))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Checks content of the file, which is mapped into memory only if it's large.
+     */
+    public static boolean mayDeclareDependencies(File file) throws IOException {
+        try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+             FileChannel channel = randomAccessFile.getChannel()) {
+            return mayDeclareDependencies(ProjectScanner.read(channel));
+        }
+    }
+
+    /**
+     * Checks remaining bytes of the buffer, position of the buffer is not changed.
+     */
+    public static boolean mayDeclareDependencies(ByteBuffer content) {
+        boolean dependenciesFound = false;
+        boolean methodNameFound = false;
+        int limit = content.limit();
+        for (int index = content.position(); index < limit; index++) {
+            if (!FIRST_BYTES[content.get(index) & 0xFF]) {
+                continue;
+            }
+            if (!dependenciesFound && matches(content, index, DEPENDENCIES_TOKEN)) {
+                dependenciesFound = true;
+                index += DEPENDENCIES_TOKEN.length - 1;
+            } else if (!methodNameFound && matchesMethodName(content, index)) {
+                methodNameFound = true;
+            }
+            if (dependenciesFound && methodNameFound) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    static boolean matchesMethodName(ByteBuffer content, int index) {
+        for (byte[] token : METHOD_NAME_TOKENS) {
+            if (matches(content, index, token)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    static boolean matches(ByteBuffer content, int index, byte[] token) {
+        if (index + token.length > content.limit()) {
+            return false;
+        }
+        for (int offset = 0; offset < token.length; offset++) {
+            if (content.get(index + offset) != token[offset]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,93 @@
+package org.jboss.forge.scan;
+
+import com.google.common.base.Supplier;
+import org.jboss.forge.project.Dependency;
+import org.jboss.forge.project.DependencyDeclaration;
+import org.jboss.forge.project.GradleProject;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Result of scanning a single build file which has changed since the previous scan.
+ *
+ * @author Adam Wyłuda
+ */
+public class ModuleScanResult {
+
+    private final String path;
+    private final File file;
+    private final Supplier<GradleProject> project;
+    private final List<DependencyDeclaration> declarations;
+    private final long contentFingerprint;
+    private final long dependenciesFingerprint;
+    private final boolean dependenciesChanged;
+
+    /**
+     * @param project Supplies project of the build file, content of a file skipped by {@link DependencyPrefilter}
+     *                is decoded only when the project is requested.
+     */
+    public ModuleScanResult(String path, File file, Supplier<GradleProject> project,
+                            List<DependencyDeclaration> declarations,
+                            long contentFingerprint, long dependenciesFingerprint, boolean dependenciesChanged) {
+        this.path = path;
+        this.file = file;
+        this.project = project;
+        this.declarations = declarations;
+        this.contentFingerprint = contentFingerprint;
+        this.dependenciesFingerprint = dependenciesFingerprint;
+        this.dependenciesChanged = dependenciesChanged;
+    }
+
+    /**
+     * @return Path of the build file relative to scanned directory, with '/' as separator.
+     */
+    public String getPath() {
+        return path;
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    /**
+     * Returns project of the build file, it's not even decoded yet if the file was skipped by
+     * {@link DependencyPrefilter}. Listeners which need only dependencies should use
+     * {@link #getDependencyDeclarations()}, which doesn't create it.
+     */
+    public GradleProject getProject() {
+        return project.get();
+    }
+
+    public List<DependencyDeclaration> getDependencyDeclarations() {
+        return declarations;
+    }
+
+    public List<Dependency> getDependencies() {
+        return dependencies(declarations);
+    }
+
+    public long getContentFingerprint() {
+        return contentFingerprint;
+    }
+
+    public long getDependenciesFingerprint() {
+        return dependenciesFingerprint;
+    }
+
+    /**
+     * @return False if only other parts of the file have changed.
+     */
+    public boolean isDependenciesChanged() {
+        return dependenciesChanged;
+    }
+
+    static List<Dependency> dependencies(List<DependencyDeclaration> declarations) {
+        List<Dependency> dependencies = new ArrayList<>(declarations.size());
+        for (DependencyDeclaration declaration : declarations) {
+            dependencies.add(declaration.getDependency());
+        }
+        return dependencies;
+    }
+}
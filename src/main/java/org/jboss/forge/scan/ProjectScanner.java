@@ -0,0 +1,290 @@
+package org.jboss.forge.scan;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.Supplier;
+import com.google.common.base.Suppliers;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import org.jboss.forge.project.Dependency;
+import org.jboss.forge.project.DependencyDeclaration;
+import org.jboss.forge.project.GradleProject;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Incrementally scans directory tree for gradle build files.
+ * <p/>
+ * Every build file gets a fingerprint of its content and of its dependencies, and every directory keeps a listing
+ * of its subdirectories and build files together with a hash of fingerprints of its whole subtree.
+ * Directories with the same modification time as in the previous scan are not listed, files with the same
+ * length and modification time are not read, files with the same content are not parsed, and only changed
+ * modules are reported to the listener. Editing a file doesn't change modification time of its directory,
+ * so unchanged subtrees are still walked, but only their build files are checked, by their stamps.
+ * <p/>
+ * Entries modified shortly before the previous scan started are checked again, as they may have been modified
+ * again within the same tick of the file system clock without changing their stamps.
+ * Symbolic links to directories are followed, but every directory is scanned only once.
+ * Files are checked with {@link DependencyPrefilter}, so files which can't declare dependencies are not parsed either.
+ * Only large files are mapped into memory, as a mapping keeps the file locked on Windows until it's garbage
+ * collected, which would block commits of {@link org.jboss.forge.project.GradleBuildFile}.
+ *
+ * @author Adam Wyłuda
+ */
+public class ProjectScanner {
+
+    public static final String BUILD_FILE_EXTENSION = ".gradle";
+    public static final String BUILD_DIRECTORY = "build";
+
+    private static final HashFunction HASH_FUNCTION = Hashing.murmur3_128();
+    private static final int HASH_CHUNK_SIZE = 8192;
+    // Mapping is faster than reading only for files larger than a few pages
+    static final long MAPPING_THRESHOLD = 64 * 1024;
+    // The coarsest resolution of modification times among common file systems, which is 2 s on FAT
+    static final long TIMESTAMP_RESOLUTION = 2000;
+
+    private final File rootDirectory;
+    private final Charset charset;
+    private final boolean prefilterEnabled;
+    private ScanState state;
+
+    public ProjectScanner(File rootDirectory, ScanState previousState) {
+        this(rootDirectory, previousState, Charset.defaultCharset());
+    }
+
+    public ProjectScanner(File rootDirectory, ScanState previousState, Charset charset) {
+        this.rootDirectory = rootDirectory;
+        this.state = previousState;
+        this.charset = charset;
+        this.prefilterEnabled = DependencyPrefilter.supports(charset);
+    }
+
+    /**
+     * @return State after the last scan, which should be stored for the next run.
+     */
+    public ScanState getState() {
+        return state;
+    }
+
+    public ScanStatistics scan(ScanListener listener) throws IOException {
+        ScanStatistics statistics = new ScanStatistics();
+        ScanState newState = new ScanState(System.currentTimeMillis());
+        scanDirectory(rootDirectory, "", rootDirectory.getCanonicalPath(), new HashSet<String>(),
+                listener, newState, statistics);
+        for (String path : state.getFileFingerprints().keySet()) {
+            if (!newState.getFileFingerprints().containsKey(path)) {
+                listener.moduleRemoved(path);
+                statistics.incrementRemovedFiles();
+            }
+        }
+        state = newState;
+        return statistics;
+    }
+
+    /**
+     * Scans build files of the directory and its subdirectories. Directory which has the same modification time
+     * as in the previous scan isn't listed again, only its build files and subdirectories are checked.
+     *
+     * @param canonicalPath      Canonical path of the directory, visited through a symbolic link only once.
+     * @param visitedDirectories Canonical paths of directories visited so far, so that link cycles are not followed.
+     * @return Hash of the subtree, which combines fingerprints of its build files, or 0 if it's not scanned.
+     */
+    long scanDirectory(File directory, String path, String canonicalPath, Set<String> visitedDirectories,
+                       ScanListener listener, ScanState newState, ScanStatistics statistics) throws IOException {
+        if (!visitedDirectories.add(canonicalPath)) {
+            return 0;
+        }
+        ScanState.DirectoryListing previousListing = state.getDirectoryListing(path);
+        ScanState.DirectoryListing listing = previousListing;
+        long lastModified = directory.lastModified();
+        if (listing != null && listing.getLastModified() == lastModified && !isRacy(lastModified)) {
+            statistics.incrementUnchangedDirectories();
+        } else {
+            listing = listDirectory(directory, lastModified);
+            if (listing == null) {
+                return 0;
+            }
+        }
+        Hasher hasher = HASH_FUNCTION.newHasher();
+        for (String name : listing.getBuildFileNames()) {
+            File file = new File(directory, name);
+            // File may have been replaced with a directory without changing modification time in a coarse file system
+            if (file.isFile()) {
+                String filePath = childPath(path, name);
+                ScanState.FileFingerprint fingerprint = scanFile(file, filePath, listener, statistics);
+                newState.getFileFingerprints().put(filePath, fingerprint);
+                hasher.putString(name, Charsets.UTF_8).putLong(fingerprint.getContentFingerprint())
+                        .putLong(fingerprint.getDependenciesFingerprint());
+            }
+        }
+        for (String name : listing.getDirectoryNames()) {
+            File child = new File(directory, name);
+            String childCanonicalPath = Files.isSymbolicLink(child.toPath()) ?
+                    child.getCanonicalPath() : canonicalPath + File.separator + name;
+            long childHash = scanDirectory(child, childPath(path, name), childCanonicalPath, visitedDirectories,
+                    listener, newState, statistics);
+            hasher.putString(name, Charsets.UTF_8).putLong(childHash);
+        }
+        long hash = hasher.hash().asLong();
+        if (previousListing != null && previousListing.getHash() == hash) {
+            statistics.incrementUnchangedSubtrees();
+        }
+        newState.getDirectoryListings().put(path, listing.withHash(hash));
+        return hash;
+    }
+
+    /**
+     * Entry modified within the clock resolution before the previous scan started may have been modified again
+     * after it was checked, without changing its stamp.
+     */
+    boolean isRacy(long lastModified) {
+        return lastModified >= state.getScanTime() - TIMESTAMP_RESOLUTION;
+    }
+
+    /**
+     * @return Sorted names of subdirectories and build files, or null if the directory can't be listed.
+     */
+    static ScanState.DirectoryListing listDirectory(File directory, long lastModified) {
+        File[] children = directory.listFiles();
+        if (children == null) {
+            return null;
+        }
+        Arrays.sort(children);
+        List<String> directoryNames = new ArrayList<>();
+        List<String> buildFileNames = new ArrayList<>();
+        for (File child : children) {
+            String name = child.getName();
+            if (child.isDirectory() && !isIgnoredDirectory(name)) {
+                directoryNames.add(name);
+            } else if (name.endsWith(BUILD_FILE_EXTENSION) && child.isFile()) {
+                buildFileNames.add(name);
+            }
+        }
+        return new ScanState.DirectoryListing(lastModified, directoryNames, buildFileNames, 0);
+    }
+
+    static String childPath(String path, String name) {
+        return path.isEmpty() ? name : path + "/" + name;
+    }
+
+    ScanState.FileFingerprint scanFile(File file, String path, ScanListener listener,
+                                       ScanStatistics statistics) throws IOException {
+        statistics.incrementScannedFiles();
+        ScanState.FileFingerprint previousFingerprint = state.getFileFingerprint(path);
+        // File stamp is taken before reading, so a concurrent modification will be noticed by the next scan
+        long length = file.length();
+        long lastModified = file.lastModified();
+        if (previousFingerprint != null && previousFingerprint.hasSameStamp(length, lastModified) &&
+                !isRacy(lastModified)) {
+            return previousFingerprint;
+        }
+        try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+             FileChannel channel = randomAccessFile.getChannel()) {
+            ByteBuffer content = read(channel);
+            statistics.incrementReadFiles();
+            long contentFingerprint = contentFingerprint(content.duplicate());
+            if (previousFingerprint != null && previousFingerprint.getContentFingerprint() == contentFingerprint) {
+                return new ScanState.FileFingerprint(length, lastModified, contentFingerprint,
+                        previousFingerprint.getDependenciesFingerprint());
+            }
+
+            Supplier<GradleProject> project;
+            List<DependencyDeclaration> declarations;
+            // Bytes are checked first, so content of a file which can't declare any dependency isn't even decoded
+            if (prefilterEnabled && !DependencyPrefilter.mayDeclareDependencies(content)) {
+                project = Suppliers.memoize(projectSupplier(content.duplicate()));
+                declarations = Collections.emptyList();
+                statistics.incrementSkippedParses();
+            } else {
+                GradleProject parsedProject = new GradleProject(charset.decode(content.duplicate()).toString());
+                project = Suppliers.ofInstance(parsedProject);
+                // Single broken build file shouldn't stop the scan, skipped statements are reported by the project
+                parsedProject.setTolerantParsing(true);
+                declarations = parsedProject.getDependencyDeclarations();
+                statistics.incrementParsedFiles();
+                if (!parsedProject.getParseDiagnostics().isEmpty()) {
+                    statistics.incrementPartiallyParsedFiles();
+                }
+            }
+            long dependenciesFingerprint = dependenciesFingerprint(ModuleScanResult.dependencies(declarations));
+            boolean dependenciesChanged = previousFingerprint == null ||
+                    previousFingerprint.getDependenciesFingerprint() != dependenciesFingerprint;
+            listener.moduleChanged(new ModuleScanResult(path, file, project, declarations,
+                    contentFingerprint, dependenciesFingerprint, dependenciesChanged));
+            return new ScanState.FileFingerprint(length, lastModified, contentFingerprint, dependenciesFingerprint);
+        }
+    }
+
+    Supplier<GradleProject> projectSupplier(final ByteBuffer content) {
+        return new Supplier<GradleProject>() {
+            @Override
+            public GradleProject get() {
+                return new GradleProject(charset.decode(content.duplicate()).toString());
+            }
+        };
+    }
+
+    /**
+     * Maps content of a large file into memory, content of a small file is read into a heap buffer.
+     * Position of the channel is not changed.
+     */
+    static ByteBuffer read(FileChannel channel) throws IOException {
+        long size = channel.size();
+        if (size > MAPPING_THRESHOLD) {
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        }
+        ByteBuffer content = ByteBuffer.allocate((int) size);
+        // Content is read from the start regardless of channel position, the same as the mapping
+        while (content.hasRemaining() && channel.read(content, content.position()) >= 0) {
+            // reads until the buffer is full or the file ends
+        }
+        content.flip();
+        return content;
+    }
+
+    /**
+     * Hashes content in chunks, which gives the same fingerprint as hashing the whole array at once.
+     */
+    static long contentFingerprint(ByteBuffer content) {
+        Hasher hasher = HASH_FUNCTION.newHasher();
+        byte[] chunk = new byte[Math.min(content.remaining(), HASH_CHUNK_SIZE)];
+        while (content.hasRemaining()) {
+            int chunkLength = Math.min(content.remaining(), chunk.length);
+            content.get(chunk, 0, chunkLength);
+            hasher.putBytes(chunk, 0, chunkLength);
+        }
+        return hasher.hash().asLong();
+    }
+
+    /**
+     * Fingerprint of dependencies doesn't depend on their order in the source.
+     */
+    static long dependenciesFingerprint(List<Dependency> dependencies) {
+        List<String> strings = new ArrayList<>(dependencies.size());
+        for (Dependency dependency : dependencies) {
+            strings.add(dependency.toString());
+        }
+        Collections.sort(strings);
+        Hasher hasher = HASH_FUNCTION.newHasher();
+        for (String string : strings) {
+            hasher.putInt(string.length()).putString(string, Charsets.UTF_8);
+        }
+        return hasher.hash().asLong();
+    }
+
+    static boolean isIgnoredDirectory(String name) {
+        return name.startsWith(".") || BUILD_DIRECTORY.equals(name);
+    }
+}
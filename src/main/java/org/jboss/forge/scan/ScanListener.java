@@ -0,0 +1,21 @@
+package org.jboss.forge.scan;
+
+import java.io.IOException;
+
+/**
+ * Receives results of incremental scan, unchanged modules are not reported.
+ *
+ * @author Adam Wyłuda
+ */
+public interface ScanListener {
+
+    /**
+     * Called for every build file which is new or has changed content.
+     */
+    void moduleChanged(ModuleScanResult result) throws IOException;
+
+    /**
+     * Called for every build file which was present in previous scan, but doesn't exist anymore.
+     */
+    void moduleRemoved(String path) throws IOException;
+}
@@ -0,0 +1,232 @@
+package org.jboss.forge.scan;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Fingerprints of build files and listings of directories from the previous scan, stored in a compact binary file.
+ * State is only a cache, so state which is corrupted or written in another format is ignored and the next scan
+ * reads everything.
+ *
+ * @author Adam Wyłuda
+ */
+public class ScanState {
+
+    private static final int MAGIC = 0x47534353;
+    private static final int FORMAT_VERSION = 3;
+
+    private final long scanTime;
+    private final Map<String, FileFingerprint> fileFingerprints;
+    private final Map<String, DirectoryListing> directoryListings;
+
+    public ScanState() {
+        this(0);
+    }
+
+    ScanState(long scanTime) {
+        this(scanTime, new HashMap<String, FileFingerprint>(), new HashMap<String, DirectoryListing>());
+    }
+
+    ScanState(long scanTime, Map<String, FileFingerprint> fileFingerprints,
+              Map<String, DirectoryListing> directoryListings) {
+        this.scanTime = scanTime;
+        this.fileFingerprints = fileFingerprints;
+        this.directoryListings = directoryListings;
+    }
+
+    /**
+     * Reads state written by {@link #write(File)}. If the file doesn't exist, is corrupted or has another format,
+     * empty state is returned.
+     */
+    public static ScanState read(File stateFile) {
+        if (!stateFile.isFile()) {
+            return new ScanState();
+        }
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(stateFile)))) {
+            return read(input);
+        } catch (IOException | RuntimeException exception) {
+            return new ScanState();
+        }
+    }
+
+    static ScanState read(DataInputStream input) throws IOException {
+        if (input.readInt() != MAGIC || input.readInt() != FORMAT_VERSION) {
+            return new ScanState();
+        }
+        long scanTime = input.readLong();
+        int fileCount = input.readInt();
+        Map<String, FileFingerprint> fileFingerprints = new HashMap<>();
+        for (int index = 0; index < fileCount; index++) {
+            String path = input.readUTF();
+            fileFingerprints.put(path, new FileFingerprint(input.readLong(), input.readLong(),
+                    input.readLong(), input.readLong()));
+        }
+        int directoryCount = input.readInt();
+        Map<String, DirectoryListing> directoryListings = new HashMap<>();
+        for (int index = 0; index < directoryCount; index++) {
+            String path = input.readUTF();
+            long lastModified = input.readLong();
+            long hash = input.readLong();
+            directoryListings.put(path, new DirectoryListing(lastModified, readNames(input), readNames(input), hash));
+        }
+        // Anything after the state means it wasn't written by this format
+        if (input.read() >= 0) {
+            return new ScanState();
+        }
+        return new ScanState(scanTime, fileFingerprints, directoryListings);
+    }
+
+    public void write(File stateFile) throws IOException {
+        try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(stateFile)))) {
+            output.writeInt(MAGIC);
+            output.writeInt(FORMAT_VERSION);
+            output.writeLong(scanTime);
+            output.writeInt(fileFingerprints.size());
+            for (Map.Entry<String, FileFingerprint> entry : fileFingerprints.entrySet()) {
+                FileFingerprint fingerprint = entry.getValue();
+                output.writeUTF(entry.getKey());
+                output.writeLong(fingerprint.getLength());
+                output.writeLong(fingerprint.getLastModified());
+                output.writeLong(fingerprint.getContentFingerprint());
+                output.writeLong(fingerprint.getDependenciesFingerprint());
+            }
+            output.writeInt(directoryListings.size());
+            for (Map.Entry<String, DirectoryListing> entry : directoryListings.entrySet()) {
+                DirectoryListing listing = entry.getValue();
+                output.writeUTF(entry.getKey());
+                output.writeLong(listing.getLastModified());
+                output.writeLong(listing.getHash());
+                writeNames(output, listing.getDirectoryNames());
+                writeNames(output, listing.getBuildFileNames());
+            }
+        }
+    }
+
+    static List<String> readNames(DataInputStream input) throws IOException {
+        int count = input.readInt();
+        List<String> names = new ArrayList<>(count);
+        for (int index = 0; index < count; index++) {
+            names.add(input.readUTF());
+        }
+        return names;
+    }
+
+    static void writeNames(DataOutputStream output, List<String> names) throws IOException {
+        output.writeInt(names.size());
+        for (String name : names) {
+            output.writeUTF(name);
+        }
+    }
+
+    /**
+     * @return Time when the scan which produced this state started, in milliseconds, or 0 for empty state.
+     */
+    public long getScanTime() {
+        return scanTime;
+    }
+
+    public FileFingerprint getFileFingerprint(String path) {
+        return fileFingerprints.get(path);
+    }
+
+    public DirectoryListing getDirectoryListing(String path) {
+        return directoryListings.get(path);
+    }
+
+    public Map<String, FileFingerprint> getFileFingerprints() {
+        return fileFingerprints;
+    }
+
+    public Map<String, DirectoryListing> getDirectoryListings() {
+        return directoryListings;
+    }
+
+    /**
+     * Subdirectories and build files of a directory. Entries can be added to or removed from a directory only
+     * by changing its modification time, so directory with the same modification time doesn't have to be listed.
+     * Hash combines fingerprints of all build files in the subtree, so equal hashes mean unchanged subtrees.
+     */
+    public static class DirectoryListing {
+
+        private final long lastModified;
+        private final List<String> directoryNames;
+        private final List<String> buildFileNames;
+        private final long hash;
+
+        public DirectoryListing(long lastModified, List<String> directoryNames, List<String> buildFileNames,
+                                long hash) {
+            this.lastModified = lastModified;
+            this.directoryNames = directoryNames;
+            this.buildFileNames = buildFileNames;
+            this.hash = hash;
+        }
+
+        public long getLastModified() {
+            return lastModified;
+        }
+
+        public List<String> getDirectoryNames() {
+            return directoryNames;
+        }
+
+        public List<String> getBuildFileNames() {
+            return buildFileNames;
+        }
+
+        public long getHash() {
+            return hash;
+        }
+
+        DirectoryListing withHash(long hash) {
+            return new DirectoryListing(lastModified, directoryNames, buildFileNames, hash);
+        }
+    }
+
+    /**
+     * Fingerprint of a single build file. Length and modification time are used to detect changes without reading it.
+     */
+    public static class FileFingerprint {
+
+        private final long length;
+        private final long lastModified;
+        private final long contentFingerprint;
+        private final long dependenciesFingerprint;
+
+        public FileFingerprint(long length, long lastModified, long contentFingerprint, long dependenciesFingerprint) {
+            this.length = length;
+            this.lastModified = lastModified;
+            this.contentFingerprint = contentFingerprint;
+            this.dependenciesFingerprint = dependenciesFingerprint;
+        }
+
+        public long getLength() {
+            return length;
+        }
+
+        public long getLastModified() {
+            return lastModified;
+        }
+
+        public long getContentFingerprint() {
+            return contentFingerprint;
+        }
+
+        public long getDependenciesFingerprint() {
+            return dependenciesFingerprint;
+        }
+
+        boolean hasSameStamp(long length, long lastModified) {
+            return this.length == length && this.lastModified == lastModified;
+        }
+    }
+}
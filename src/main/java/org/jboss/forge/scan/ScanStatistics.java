@@ -0,0 +1,111 @@
+package org.jboss.forge.scan;
+
+/**
+ * Counts of work done and avoided by a single scan.
+ *
+ * @author Adam Wyłuda
+ */
+public class ScanStatistics {
+
+    private int scannedFiles;
+    private int readFiles;
+    private int parsedFiles;
+    private int partiallyParsedFiles;
+    private int skippedParses;
+    private int removedFiles;
+    private int unchangedDirectories;
+    private int unchangedSubtrees;
+
+    /**
+     * @return Count of all build files found.
+     */
+    public int getScannedFiles() {
+        return scannedFiles;
+    }
+
+    /**
+     * @return Count of build files which had different length or modification time and had to be read.
+     */
+    public int getReadFiles() {
+        return readFiles;
+    }
+
+    /**
+     * @return Count of build files which had different content and had to be parsed.
+     */
+    public int getParsedFiles() {
+        return parsedFiles;
+    }
+
+    /**
+     * @return Count of parsed build files which had syntax errors, their broken statements were skipped.
+     */
+    public int getPartiallyParsedFiles() {
+        return partiallyParsedFiles;
+    }
+
+    /**
+     * @return Count of build files which had different content, but weren't parsed as they can't declare dependencies.
+     */
+    public int getSkippedParses() {
+        return skippedParses;
+    }
+
+    public int getRemovedFiles() {
+        return removedFiles;
+    }
+
+    /**
+     * @return Count of directories which had the same modification time as in the previous scan and weren't listed.
+     */
+    public int getUnchangedDirectories() {
+        return unchangedDirectories;
+    }
+
+    /**
+     * @return Count of directories whose subtrees have the same hash as in the previous scan.
+     */
+    public int getUnchangedSubtrees() {
+        return unchangedSubtrees;
+    }
+
+    void incrementScannedFiles() {
+        scannedFiles++;
+    }
+
+    void incrementReadFiles() {
+        readFiles++;
+    }
+
+    void incrementParsedFiles() {
+        parsedFiles++;
+    }
+
+    void incrementPartiallyParsedFiles() {
+        partiallyParsedFiles++;
+    }
+
+    void incrementSkippedParses() {
+        skippedParses++;
+    }
+
+    void incrementRemovedFiles() {
+        removedFiles++;
+    }
+
+    void incrementUnchangedDirectories() {
+        unchangedDirectories++;
+    }
+
+    void incrementUnchangedSubtrees() {
+        unchangedSubtrees++;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("scanned: %d, read: %d, parsed: %d, partially parsed: %d, skipped parses: %d, " +
+                "removed: %d, unchanged directories: %d, unchanged subtrees: %d", scannedFiles, readFiles,
+                parsedFiles, partiallyParsedFiles, skippedParses, removedFiles, unchangedDirectories,
+                unchangedSubtrees);
+    }
+}
@@ -0,0 +1,171 @@
+package org.jboss.forge.scan;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Precompiled version, which can be compared with other versions without parsing them again.
+ * <p/>
+ * Ordering follows gradle rules: version is split into parts on '.', '-', '_', '+' and on transitions between
+ * digits and letters. Numeric parts are compared as numbers of any length and are higher than non-numeric parts.
+ * Non-numeric parts are compared alphabetically, except for special values ordered as:
+ * dev &lt; other &lt; rc &lt; snapshot &lt; final &lt; ga &lt; release &lt; sp.
+ * Extra numeric part makes version higher (1.0.1 &gt; 1.0), extra non-numeric part makes it lower (1.0-rc &lt; 1.0).
+ *
+ * @author Adam Wyłuda
+ */
+public class VersionKey implements Comparable<VersionKey> {
+
+    private static final int NUMERIC_RANK = Integer.MAX_VALUE;
+    private static final int OTHER_RANK = 1;
+    private static final String[] SPECIAL_VALUES = {"rc", "snapshot", "final", "ga", "release", "sp"};
+    // Longer numbers don't fit in a long, they are kept as digits without leading zeros
+    private static final int MAXIMUM_LONG_DIGITS = 18;
+
+    private final String version;
+    private final int[] ranks;
+    private final long[] numbers;
+    private final String[] texts;
+
+    private VersionKey(String version, int[] ranks, long[] numbers, String[] texts) {
+        this.version = version;
+        this.ranks = ranks;
+        this.numbers = numbers;
+        this.texts = texts;
+    }
+
+    /**
+     * @param version Version string, null is treated as empty version, which is the lowest one.
+     */
+    public static VersionKey of(String version) {
+        List<String> parts = splitVersion(version != null ? version : "");
+        int[] ranks = new int[parts.size()];
+        long[] numbers = new long[parts.size()];
+        String[] texts = new String[parts.size()];
+        for (int index = 0; index < parts.size(); index++) {
+            String part = parts.get(index);
+            if (Character.isDigit(part.charAt(0))) {
+                String digits = stripLeadingZeros(part);
+                ranks[index] = NUMERIC_RANK;
+                if (digits.length() <= MAXIMUM_LONG_DIGITS) {
+                    numbers[index] = Long.parseLong(digits);
+                } else {
+                    texts[index] = digits;
+                }
+            } else {
+                ranks[index] = rankOf(part);
+                texts[index] = part;
+            }
+        }
+        return new VersionKey(version, ranks, numbers, texts);
+    }
+
+    public String getVersion() {
+        return version;
+    }
+
+    @Override
+    public int compareTo(VersionKey other) {
+        int commonLength = Math.min(ranks.length, other.ranks.length);
+        for (int index = 0; index < commonLength; index++) {
+            int result = comparePart(index, other);
+            if (result != 0) {
+                return result;
+            }
+        }
+        if (ranks.length == other.ranks.length) {
+            return 0;
+        }
+        // Longer version is higher if its next part is numeric
+        if (ranks.length > other.ranks.length) {
+            return ranks[commonLength] == NUMERIC_RANK ? 1 : -1;
+        }
+        return other.ranks[commonLength] == NUMERIC_RANK ? -1 : 1;
+    }
+
+    int comparePart(int index, VersionKey other) {
+        int rank = ranks[index];
+        int otherRank = other.ranks[index];
+        if (rank != otherRank) {
+            return Integer.compare(rank, otherRank);
+        }
+        if (rank == NUMERIC_RANK) {
+            String digits = texts[index];
+            String otherDigits = other.texts[index];
+            if (digits == null && otherDigits == null) {
+                return Long.compare(numbers[index], other.numbers[index]);
+            }
+            // Number which fits in a long is shorter than the other one
+            if (digits == null || otherDigits == null) {
+                return digits == null ? -1 : 1;
+            }
+            return digits.length() != otherDigits.length() ?
+                    Integer.compare(digits.length(), otherDigits.length()) : digits.compareTo(otherDigits);
+        }
+        if (rank == OTHER_RANK) {
+            return texts[index].compareTo(other.texts[index]);
+        }
+        return 0;
+    }
+
+    static int rankOf(String part) {
+        if ("dev".equalsIgnoreCase(part)) {
+            return 0;
+        }
+        for (int index = 0; index < SPECIAL_VALUES.length; index++) {
+            if (SPECIAL_VALUES[index].equalsIgnoreCase(part)) {
+                return OTHER_RANK + 1 + index;
+            }
+        }
+        return OTHER_RANK;
+    }
+
+    static String stripLeadingZeros(String digits) {
+        int index = 0;
+        while (index < digits.length() - 1 && digits.charAt(index) == '0') {
+            index++;
+        }
+        return digits.substring(index);
+    }
+
+    static List<String> splitVersion(String version) {
+        List<String> parts = new ArrayList<>();
+        int partStart = 0;
+        for (int index = 0; index <= version.length(); index++) {
+            boolean separator = index == version.length() || ".-_+".indexOf(version.charAt(index)) >= 0;
+            boolean transition = !separator && index > partStart &&
+                    Character.isDigit(version.charAt(index)) != Character.isDigit(version.charAt(index - 1));
+            if (separator || transition) {
+                if (index > partStart) {
+                    parts.add(version.substring(partStart, index));
+                }
+                partStart = separator ? index + 1 : index;
+            }
+        }
+        return parts;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return this == o || (o instanceof VersionKey && compareTo((VersionKey) o) == 0);
+    }
+
+    @Override
+    public int hashCode() {
+        int result = 0;
+        for (int index = 0; index < ranks.length; index++) {
+            result = 31 * result + ranks[index];
+            if (ranks[index] == NUMERIC_RANK) {
+                result = 31 * result + (texts[index] != null ? texts[index].hashCode() : (int) numbers[index]);
+            } else {
+                result = 31 * result + (ranks[index] == OTHER_RANK ? texts[index].hashCode() : 0);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return version;
+    }
+}
@@ -0,0 +1,113 @@
+package org.jboss.forge.export;
+
+import com.google.common.base.Charsets;
+import com.google.common.io.Files;
+import org.jboss.forge.project.Dependency;
+import org.jboss.forge.project.DependencyDeclaration;
+import org.jboss.forge.scan.ProjectScanner;
+import org.jboss.forge.scan.ScanState;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * @author Adam Wyłuda
+ */
+public class DependencyWriterTest {
+
+    private final DependencyDeclaration declaration = new DependencyDeclaration(
+            new Dependency("a", "b\"c", null, Dependency.Type.TEST_COMPILE), 2, 5, 2, 26);
+
+    @Test
+    public void jsonLinesTest() throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        DependencyWriter writer = new JsonLinesDependencyWriter(Channels.newChannel(output), 16);
+        writer.writeModuleReplaced("api/build.gradle");
+        writer.writeDependency("api/build.gradle", declaration);
+        writer.writeModuleRemoved("web/build.gradle");
+        writer.close();
+
+        String expectedOutput = "{\"module\":\"api/build.gradle\",\"replaced\":true}\n" +
+                "{\"module\":\"api/build.gradle\",\"configuration\":\"testCompile\"," +
+                "\"group\":\"a\",\"name\":\"b\\\"c\",\"version\":null,\"line\":2,\"column\":5,\"lastLine\":2,\"lastColumn\":26}\n" +
+                "{\"module\":\"web/build.gradle\",\"removed\":true}\n";
+        assertEquals(expectedOutput, new String(output.toByteArray(), Charsets.UTF_8));
+    }
+
+    @Test
+    public void binaryTest() throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        DependencyWriter writer = new BinaryDependencyWriter(Channels.newChannel(output));
+        writer.writeModuleReplaced("api");
+        writer.writeDependency("api", declaration);
+        writer.writeModuleRemoved("web");
+        writer.close();
+
+        ByteBuffer buffer = ByteBuffer.wrap(output.toByteArray());
+        assertEquals(1 + 4 + 3, buffer.getInt());
+        assertEquals(BinaryDependencyWriter.MODULE_REPLACED_RECORD, buffer.get());
+        assertEquals("api", readString(buffer));
+        int length = buffer.getInt();
+        assertEquals(BinaryDependencyWriter.DEPENDENCY_RECORD, buffer.get());
+        assertEquals("api", readString(buffer));
+        assertEquals("testCompile", readString(buffer));
+        assertEquals("a", readString(buffer));
+        assertEquals("b\"c", readString(buffer));
+        assertEquals(null, readString(buffer));
+        assertEquals(2, buffer.getInt());
+        assertEquals(5, buffer.getInt());
+        assertEquals(2, buffer.getInt());
+        assertEquals(26, buffer.getInt());
+        assertEquals(4 + 8 + 4 + length, buffer.position());
+
+        buffer.getInt();
+        assertEquals(BinaryDependencyWriter.MODULE_REMOVED_RECORD, buffer.get());
+        assertEquals("web", readString(buffer));
+        assertEquals(0, buffer.remaining());
+    }
+
+    @Test
+    public void incrementalScanTest() throws IOException {
+        File rootDirectory = Files.createTempDir();
+        File buildFile = new File(rootDirectory, "api/build.gradle");
+        try {
+            Files.createParentDirs(buildFile);
+            Files.write("dependencies {\n    compile 'a:b:1'\n    compile 'c:d:1'\n}\n", buildFile, Charsets.UTF_8);
+            buildFile.setLastModified(System.currentTimeMillis() - 10000);
+            ProjectScanner scanner = new ProjectScanner(rootDirectory, new ScanState());
+            scanner.scan(new DependencyExportListener(new JsonLinesDependencyWriter(Channels.newChannel(
+                    new ByteArrayOutputStream()))));
+
+            // Dependency removed from the module is dropped by the replaced record
+            Files.write("dependencies {\n    compile 'a:b:2'\n}\n", buildFile, Charsets.UTF_8);
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            DependencyWriter writer = new JsonLinesDependencyWriter(Channels.newChannel(output));
+            scanner.scan(new DependencyExportListener(writer));
+            writer.close();
+            String expectedOutput = "{\"module\":\"api/build.gradle\",\"replaced\":true}\n" +
+                    "{\"module\":\"api/build.gradle\",\"configuration\":\"compile\",\"group\":\"a\"," +
+                    "\"name\":\"b\",\"version\":\"2\",\"line\":2,\"column\":5,\"lastLine\":2,\"lastColumn\":20}\n";
+            assertEquals(expectedOutput, new String(output.toByteArray(), Charsets.UTF_8));
+        } finally {
+            buildFile.delete();
+            buildFile.getParentFile().delete();
+            rootDirectory.delete();
+        }
+    }
+
+    static String readString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, Charsets.UTF_8);
+    }
+}
@@ -2,6 +2,8 @@ package org.jboss.forge.parser.groovy;
 
 import org.junit.Test;
 
+import java.util.Arrays;
+import java.util.List;
 import java.util.Map;
 
 import static org.junit.Assert.assertEquals;
@@ -68,4 +70,42 @@ public class SimpleGroovyParserTest {
         assertEquals("compile", compile.getMethodName());
         assertEquals("group:artifact:1.0.0", compile.getString());
     }
+
+    @Test
+    public void resolvedArgumentsTest() {
+        String source = "ext {\n" +
+                "    barVersion = '1.0'\n" +
+                "    libraries = [guava: 'com.google.guava:guava:14.0.1']\n" +
+                "}\n" +
+                "ext.bazVersion = \"${barVersion}.2\"\n" +
+                "def group = 'com.foo'\n" +
+                "dependencies {\n" +
+                "    compile \"$group:bar:$barVersion\"\n" +
+                "    compile libraries.guava\n" +
+                "    runtime group: group, name: 'baz', version: project.ext.bazVersion\n" +
+                "    testCompile 'junit:junit:' + junitVersion\n" +
+                "    testRuntime rootProject.ext.libraries.mockito\n" +
+                "}\n";
+
+        SimpleGroovyParser parser = new SimpleGroovyParser(source);
+        InvocationWithClosure dependencies = parser.getInvocationsWithClosure().get(1);
+        assertEquals("dependencies", dependencies.getMethodName());
+
+        List<InvocationWithString> stringInvocations = dependencies.getInternalStringInvocations();
+        assertEquals(2, stringInvocations.size());
+        assertEquals("com.foo:bar:1.0", stringInvocations.get(0).getString());
+        assertEquals("com.google.guava:guava:14.0.1", stringInvocations.get(1).getString());
+
+        Map<String, String> parameters = dependencies.getInternalMapInvocations().get(0).getParameters();
+        assertEquals("com.foo", parameters.get("group"));
+        assertEquals("1.0.2", parameters.get("version"));
+
+        // Values which aren't defined in the script are reported, not dropped
+        List<UnresolvedInvocation> unresolvedInvocations = dependencies.getInternalUnresolvedInvocations();
+        assertEquals(2, unresolvedInvocations.size());
+        assertEquals("testCompile", unresolvedInvocations.get(0).getMethodName());
+        assertEquals(Arrays.asList("junitVersion"), unresolvedInvocations.get(0).getUnresolvedNames());
+        assertEquals(11, unresolvedInvocations.get(0).getLineNumber());
+        assertEquals(Arrays.asList("rootProject.ext.libraries.mockito"), unresolvedInvocations.get(1).getUnresolvedNames());
+    }
 }
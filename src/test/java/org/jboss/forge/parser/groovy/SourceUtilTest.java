@@ -2,7 +2,11 @@ package org.jboss.forge.parser.groovy;
 
 import org.junit.Test;
 
+import java.util.Arrays;
+
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 
 /**
  * @author Adam Wyłuda
@@ -56,4 +60,26 @@ public class SourceUtilTest {
         String output = SourceUtil.removeSourceFragment(source, 1, 8, 1, 13);
         assertEquals(expectedOutput, output);
     }
+
+    @Test
+    public void applyPatchesTest() {
+        String source = "compile 'a:b:1.0'\n";
+        String expectedOutput = "testCompile 'a:b:2.0'\n";
+
+        String output = SourceUtil.applyPatches(source, Arrays.asList(
+                new SourcePatch(0, 7, "testCompile"),
+                new SourcePatch(17, 1, "2")));
+        assertEquals(expectedOutput, output);
+    }
+
+    @Test
+    public void hasBalancedBracketsTest() {
+        assertTrue(SourceUtil.hasBalancedBrackets("repositories { mavenCentral() }\n" +
+                "// unclosed ( in a comment\n" +
+                "/* and } in another */ def s = '{' + \"[\\\"\" + '''\n)\n'''\n"));
+        assertFalse(SourceUtil.hasBalancedBrackets("repositories { mavenCentral() \n"));
+        assertFalse(SourceUtil.hasBalancedBrackets("task a(type: Copy] {}\n"));
+        assertFalse(SourceUtil.hasBalancedBrackets("version = '1.0\n"));
+        assertFalse(SourceUtil.hasBalancedBrackets("/* comment {}\n"));
+    }
 }
@@ -0,0 +1,118 @@
+package org.jboss.forge.parser.groovy;
+
+import org.codehaus.groovy.ast.expr.ConstantExpression;
+import org.codehaus.groovy.ast.expr.VariableExpression;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author Adam Wyłuda
+ */
+public class SymbolTableTest {
+
+    @Test
+    public void definitionsTest() {
+        String source = "def local = 'a'\n" +
+                "version = '2.0'\n" +
+                "allprojects {\n" +
+                "    def hidden = 'b'\n" +
+                "    ext.shared = \"$local-$version\"\n" +
+                "}\n" +
+                "ext {\n" +
+                "    versions = [spring: '3.2.3.RELEASE', nested: [guava: '14.0.1']]\n" +
+                "}\n";
+
+        SymbolTable symbolTable = SymbolTable.fromStatement(SimpleGroovyParser.parseSource(source));
+        assertEquals("a", symbolTable.lookup("local").get());
+        assertEquals("2.0", symbolTable.lookup("project.version").get());
+        assertFalse(symbolTable.isDefined("hidden"));
+        assertEquals("a-2.0", symbolTable.lookup("ext.shared").get());
+        assertEquals("3.2.3.RELEASE", symbolTable.lookup("versions.spring").get());
+        assertEquals("14.0.1", symbolTable.lookup("project.ext.versions.nested.guava").get());
+    }
+
+    @Test
+    public void subprojectsTest() {
+        String source = "ext.v = '1'\n" +
+                "subprojects {\n" +
+                "    ext.v = '2'\n" +
+                "    ext { w = '3' }\n" +
+                "}\n" +
+                "def coordinates = \"a:b:$v\"\n";
+
+        // Extra properties of subprojects don't affect the project itself
+        SymbolTable symbolTable = SymbolTable.fromStatement(SimpleGroovyParser.parseSource(source));
+        assertEquals("1", symbolTable.lookup("v").get());
+        assertEquals("a:b:1", symbolTable.lookup("coordinates").get());
+        assertFalse(symbolTable.isDefined("w"));
+    }
+
+    @Test
+    public void definitionOrderTest() {
+        String source = "ext.v = '1'\n" +
+                "def first = \"a:b:$v\"\n" +
+                "allprojects { ext.v = '2' }\n" +
+                "def second = \"a:b:$v\"\n" +
+                "version = '1.0'\n" +
+                "version = version + '-SNAPSHOT'\n";
+
+        // Every reference is resolved with the definition which precedes it
+        SimpleGroovyParser parser = new SimpleGroovyParser(source + "dependencies {\n" +
+                "    compile \"c:d:$v\"\n" +
+                "}\n");
+        SymbolTable symbolTable = parser.getSymbolTable();
+        assertEquals("a:b:1", symbolTable.lookup("first").get());
+        assertEquals("a:b:2", symbolTable.lookup("second").get());
+        assertEquals("2", symbolTable.lookup("v").get());
+        assertEquals("1.0-SNAPSHOT", symbolTable.lookup("version").get());
+        assertEquals("c:d:2", dependencyString(parser));
+
+        parser = new SimpleGroovyParser("ext.v = '1'\n" +
+                "dependencies {\n" +
+                "    compile \"c:d:$v\"\n" +
+                "}\n" +
+                "ext.v = '2'\n");
+        assertEquals("c:d:1", dependencyString(parser));
+    }
+
+    static String dependencyString(SimpleGroovyParser parser) {
+        for (InvocationWithClosure invocation : parser.getInvocationsWithClosure()) {
+            if ("dependencies".equals(invocation.getMethodName())) {
+                return invocation.getInternalStringInvocations().get(0).getString();
+            }
+        }
+        return null;
+    }
+
+    @Test
+    public void lazyEvaluationTest() {
+        SymbolTable symbolTable = new SymbolTable();
+        symbolTable.define("first", new VariableExpression("second"));
+        symbolTable.define("second", new ConstantExpression("1.0"));
+        assertEquals("1.0", symbolTable.lookup("first").get());
+
+        // Redefining a symbol invalidates memoised values which depend on it
+        symbolTable.define("second", new ConstantExpression("2.0"));
+        assertEquals("2.0", symbolTable.lookup("first").get());
+        assertFalse(symbolTable.lookup("third").isPresent());
+    }
+
+    @Test
+    public void cyclicDefinitionsTest() {
+        SymbolTable symbolTable = new SymbolTable();
+        symbolTable.define("first", new VariableExpression("second"));
+        symbolTable.define("second", new VariableExpression("first"));
+
+        List<String> unresolvedNames = new ArrayList<>();
+        assertFalse(symbolTable.resolve(new VariableExpression("first"), unresolvedNames).isPresent());
+        assertEquals(Arrays.asList("first"), unresolvedNames);
+        assertTrue(symbolTable.isDefined("second"));
+    }
+}
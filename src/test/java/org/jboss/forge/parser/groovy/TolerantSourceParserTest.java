@@ -0,0 +1,116 @@
+package org.jboss.forge.parser.groovy;
+
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author Adam Wyłuda
+ */
+public class TolerantSourceParserTest {
+
+    @Test
+    public void validSourceTest() {
+        String source = "apply plugin: 'java'\n" +
+                "dependencies {\n" +
+                "    compile 'a:b:1'\n" +
+                "}\n";
+
+        SimpleGroovyParser parser = new SimpleGroovyParser(source, true);
+        assertTrue(parser.getDiagnostics().isEmpty());
+        assertEquals(1, parser.getInvocationsWithClosure().size());
+        assertEquals(1, parser.getInvocationsWithMap().size());
+    }
+
+    @Test
+    public void brokenStatementInClosureTest() {
+        String source = "apply plugin: 'java'\n" +
+                "dependencies {\n" +
+                "    compile 'a:b:1'\n" +
+                "    compile group: 'c' name: 'd'\n" +
+                "    compile 'e:f:2'; testCompile 'g:h:3'\n" +
+                "}\n" +
+                "repositories { mavenCentral() }\n";
+
+        SimpleGroovyParser parser = new SimpleGroovyParser(source, true);
+        List<ParseDiagnostic> diagnostics = parser.getDiagnostics();
+        assertEquals(1, diagnostics.size());
+        ParseDiagnostic diagnostic = diagnostics.get(0);
+        assertEquals(4, diagnostic.getLineNumber());
+        assertEquals(5, diagnostic.getColumnNumber());
+        assertEquals(4, diagnostic.getLastLineNumber());
+        assertEquals(33, diagnostic.getLastColumnNumber());
+
+        assertEquals(2, parser.getInvocationsWithClosure().size());
+        InvocationWithClosure dependencies = parser.getInvocationsWithClosure().get(0);
+        List<InvocationWithString> stringInvocations = dependencies.getInternalStringInvocations();
+        assertEquals(3, stringInvocations.size());
+        // Positions of statements after the skipped one are not shifted
+        assertEquals(5, stringInvocations.get(2).getLineNumber());
+        assertEquals(22, stringInvocations.get(2).getColumnNumber());
+    }
+
+    @Test
+    public void brokenTopLevelStatementsTest() {
+        String source = "version = '1.0\n" +
+                "/* comment with { brace */\n" +
+                "compile \"x:y:$version\"\n" +
+                "task broken(type: Copy) {\n" +
+                "    from 'a'\n" +
+                "}}\n" +
+                "def list = [1,\n" +
+                "    2]\n" +
+                "include 'sub'\n" +
+                "dependencies {\n" +
+                "    compile 'a:b:1'\n";
+
+        SimpleGroovyParser parser = new SimpleGroovyParser(source, true);
+        List<ParseDiagnostic> diagnostics = parser.getDiagnostics();
+        assertEquals(3, diagnostics.size());
+        assertEquals(1, diagnostics.get(0).getLineNumber());
+        assertEquals(4, diagnostics.get(1).getLineNumber());
+        assertEquals(6, diagnostics.get(1).getLastLineNumber());
+        // Unclosed block is skipped to the end of source
+        assertEquals(10, diagnostics.get(2).getLineNumber());
+
+        // Reference to a skipped definition is reported as unresolved
+        assertEquals(1, parser.getUnresolvedInvocations().size());
+        assertEquals(1, parser.getInvocationsWithString().size());
+        assertEquals("sub", parser.getInvocationsWithString().get(0).getString());
+    }
+
+    @Test
+    public void unclosedBracketTest() {
+        String source = "repositories {\n" +
+                "    mavenCentral()\n" +
+                "\n" +
+                "foo bar baz(\n" +
+                "dependencies {\n" +
+                "    compile 'a:b:1'\n" +
+                "}\n" +
+                "task copy {\n" +
+                "    from('a'\n" +
+                "}\n" +
+                "apply plugin: 'java'\n";
+
+        // Statements are split again at lines starting with top level keywords and at the closing brace
+        SimpleGroovyParser parser = new SimpleGroovyParser(source, true);
+        List<ParseDiagnostic> diagnostics = parser.getDiagnostics();
+        assertEquals(2, diagnostics.size());
+        // Stray line doesn't start with a keyword, so it's skipped with the unclosed block
+        assertEquals(1, diagnostics.get(0).getLineNumber());
+        assertEquals(4, diagnostics.get(0).getLastLineNumber());
+        assertEquals(8, diagnostics.get(1).getLineNumber());
+        assertEquals(10, diagnostics.get(1).getLastLineNumber());
+
+        assertEquals(1, parser.getInvocationsWithClosure().size());
+        InvocationWithClosure dependencies = parser.getInvocationsWithClosure().get(0);
+        assertEquals("dependencies", dependencies.getMethodName());
+        assertEquals("a:b:1", dependencies.getInternalStringInvocations().get(0).getString());
+        assertEquals(6, dependencies.getInternalStringInvocations().get(0).getLineNumber());
+        assertEquals(1, parser.getInvocationsWithMap().size());
+    }
+}
@@ -0,0 +1,132 @@
+package org.jboss.forge.project;
+
+import com.google.common.base.Charsets;
+import com.google.common.io.Files;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.MoreExecutors;
+import org.jboss.forge.parser.groovy.SourcePatch;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * @author Adam Wyłuda
+ */
+public class AsyncGradleProjectsTest {
+
+    private static final String SOURCE = "dependencies {\n    compile 'a:b:1'\n}\n";
+
+    private File buildFile;
+    private ListeningExecutorService parseExecutor;
+    private ListeningExecutorService ioExecutor;
+    private AsyncGradleProjects projects;
+    private final List<ListenableFuture<?>> blockingTasks = new ArrayList<>();
+
+    @Before
+    public void createFile() throws IOException {
+        buildFile = File.createTempFile("build", ".gradle");
+        Files.write(SOURCE, buildFile, Charsets.UTF_8);
+        parseExecutor = MoreExecutors.listeningDecorator(AsyncGradleProjects.boundedExecutor(4, 100));
+        ioExecutor = MoreExecutors.listeningDecorator(AsyncGradleProjects.boundedExecutor(1, 1));
+        projects = new AsyncGradleProjects(parseExecutor, ioExecutor, Charsets.UTF_8);
+    }
+
+    @After
+    public void deleteFile() {
+        projects.shutdown();
+        assertTrue(buildFile.delete());
+    }
+
+    @Test
+    public void loadCoalescingTest() throws Exception {
+        CountDownLatch latch = blockIoExecutor(false);
+        ListenableFuture<GradleProject> firstLoad = projects.load(buildFile);
+        ListenableFuture<GradleProject> secondLoad = projects.load(buildFile);
+        assertTrue(firstLoad == secondLoad);
+
+        latch.countDown();
+        assertEquals(1, firstLoad.get().getDependencies().size());
+    }
+
+    @Test
+    public void rejectionTest() throws Exception {
+        // Single I/O thread is busy and its queue is full
+        CountDownLatch latch = blockIoExecutor(true);
+        ListenableFuture<GradleProject> load = projects.load(buildFile);
+        assertRejected(load);
+        assertRejected(projects.save(buildFile, SOURCE, new ArrayList<SourcePatch>()));
+        assertRejected(projects.save(buildFile, new GradleProject(SOURCE)));
+
+        // Rejected load doesn't stay in flight
+        release(latch);
+        ListenableFuture<GradleProject> nextLoad = projects.load(buildFile);
+        assertTrue(nextLoad != load);
+        assertEquals(1, nextLoad.get().getDependencies().size());
+    }
+
+    @Test
+    public void editSaveOrderTest() throws Exception {
+        GradleProject project = projects.load(buildFile).get();
+        List<Dependency> dependencies = new ArrayList<>();
+        for (int index = 0; index < 20; index++) {
+            Dependency dependency = Dependency.fromString("c:d:" + index, Dependency.Type.COMPILE);
+            dependencies.add(dependency);
+            projects.addDependency(project, dependency);
+        }
+        // Save is submitted after the edits, so it writes all of them
+        projects.save(buildFile, project).get();
+        GradleProject savedProject = new GradleProject(Files.toString(buildFile, Charsets.UTF_8));
+        assertEquals(21, savedProject.getDependencies().size());
+        assertTrue(savedProject.getDependencies().containsAll(dependencies));
+        assertEquals(21, projects.getDependencies(project).get().size());
+    }
+
+    /**
+     * Occupies the only I/O thread until the latch is released, optionally also filling its queue.
+     */
+    CountDownLatch blockIoExecutor(boolean fillQueue) {
+        final CountDownLatch latch = new CountDownLatch(1);
+        Callable<Void> blockingTask = new Callable<Void>() {
+            @Override
+            public Void call() throws InterruptedException {
+                latch.await();
+                return null;
+            }
+        };
+        blockingTasks.add(ioExecutor.submit(blockingTask));
+        if (fillQueue) {
+            blockingTasks.add(ioExecutor.submit(blockingTask));
+        }
+        return latch;
+    }
+
+    void release(CountDownLatch latch) throws Exception {
+        latch.countDown();
+        for (ListenableFuture<?> blockingTask : blockingTasks) {
+            blockingTask.get();
+        }
+    }
+
+    static void assertRejected(ListenableFuture<?> future) throws InterruptedException {
+        try {
+            future.get();
+            fail("Future should fail");
+        } catch (ExecutionException exception) {
+            assertTrue(exception.getCause() instanceof RejectedExecutionException);
+        }
+    }
+}
@@ -0,0 +1,225 @@
+package org.jboss.forge.project;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Randomly generated, valid build script together with a model of its top-level dependencies closure.
+ * Model is updated the way add and remove operations are expected to change the source,
+ * so rendered model can be compared with the source modified by GradleProject.
+ * Dependencies closure written in one line or with statements separated by ';' is rendered only initially,
+ * its edited source can be compared with the model only by dependencies, see {@link #isRenderedExactly()}.
+ *
+ * @author Adam Wyłuda
+ */
+class BuildScriptModel {
+
+    private static final String[] GROUPS = {"org.jboss", "com.google.guava", "junit", "org.slf4j", "io.netty"};
+    private static final String[] NAMES = {"core", "api", "guava", "junit", "slf4j-api", "netty-all", "forge"};
+    private static final String[] VERSIONS = {"1", "1.0", "2.5.1", "14.0.1", "4.11", "1.0.0.Final", "3.1-SNAPSHOT"};
+
+    private static final String[] HEADER_BLOCKS = {
+            "apply plugin: 'java'",
+            "// Build configuration",
+            "/* block\n   comment */",
+            "repositories {\n    mavenCentral()\n}",
+            "repositories { jcenter() }",
+            "ext { guavaVersion = '14.0.1'; junitVersion = '4.11' }",
+            "configurations {\n    provided\n    compile {\n        extendsFrom provided\n    }\n}",
+            "subprojects {\n    apply plugin: 'groovy'\n    dependencies {\n        compile 'nested:closure:1'\n    }\n}",
+            "sourceCompatibility = '1.7'",
+    };
+
+    private static final String[] FOOTER_BLOCKS = {
+            "task copyToLib(type: Copy) {\n    into \"$buildDir/libs/lib\"\n    from configurations.compile\n}",
+            "jar {\n    manifest {\n        attributes 'Main-Class': 'org.jboss.forge.MainClass'\n    }\n}",
+            "// The end",
+    };
+
+    private final String lineSeparator;
+    private final Shape shape;
+    private final String header;
+    private final String openingLine;
+    private final List<Entry> entries = new ArrayList<>();
+    private final String footer;
+
+    private BuildScriptModel(String lineSeparator, Shape shape, String header, String openingLine, String footer) {
+        this.lineSeparator = lineSeparator;
+        this.shape = shape;
+        this.header = header;
+        this.openingLine = openingLine;
+        this.footer = footer;
+    }
+
+    static BuildScriptModel generate(Random random, int dependencyCount) {
+        String lineSeparator = random.nextBoolean() ? "\n" : "\r\n";
+        String header = randomBlocks(random, HEADER_BLOCKS, lineSeparator);
+        String openingLine = random.nextBoolean() ? "dependencies {" : "dependencies { // libraries";
+        String footer = randomBlocks(random, FOOTER_BLOCKS, lineSeparator);
+        // Most scripts have one statement per line, so their edits can be compared exactly
+        Shape[] shapes = Shape.values();
+        Shape shape = random.nextInt(3) == 0 ? shapes[1 + random.nextInt(shapes.length - 1)] : Shape.LINES;
+        BuildScriptModel model = new BuildScriptModel(lineSeparator, shape, header, openingLine, footer);
+        for (int index = 0; index < dependencyCount; index++) {
+            Dependency dependency = randomDependency(random);
+            model.entries.add(shape == Shape.LINES ? randomEntry(random, dependency) : randomStatement(random, dependency));
+        }
+        return model;
+    }
+
+    /**
+     * Entry without comments, which can be followed by another statement in the same line.
+     */
+    static Entry randomStatement(Random random, Dependency dependency) {
+        if (random.nextBoolean()) {
+            return new Entry(String.format("    %s group: '%s', name: '%s', version: '%s'",
+                    dependency.getType().getMethodName(), dependency.getGroupId(),
+                    dependency.getArtifactId(), dependency.getVersion()), dependency);
+        }
+        return new Entry(String.format("    %s '%s'",
+                dependency.getType().getMethodName(), dependency.toGradleString()), dependency);
+    }
+
+    static Dependency randomDependency(Random random) {
+        Dependency.Type[] types = Dependency.Type.values();
+        return new Dependency(GROUPS[random.nextInt(GROUPS.length)], NAMES[random.nextInt(NAMES.length)],
+                VERSIONS[random.nextInt(VERSIONS.length)], types[random.nextInt(types.length)]);
+    }
+
+    static Entry randomEntry(Random random, Dependency dependency) {
+        switch (random.nextInt(6)) {
+            case 0:
+                return new Entry("    // comment before " + dependency.getArtifactId(), null);
+            case 1:
+                return new Entry("", null);
+            case 2:
+                return new Entry(String.format("    %s group: '%s', name: '%s', version: '%s'",
+                        dependency.getType().getMethodName(), dependency.getGroupId(),
+                        dependency.getArtifactId(), dependency.getVersion()), dependency);
+            case 3:
+                return new Entry(String.format("    %s '%s' // why we need it",
+                        dependency.getType().getMethodName(), dependency.toGradleString()), dependency);
+            default:
+                return new Entry(String.format("    %s \"%s\"",
+                        dependency.getType().getMethodName(), dependency.toGradleString()), dependency);
+        }
+    }
+
+    static String randomBlocks(Random random, String[] blocks, String lineSeparator) {
+        StringBuilder builder = new StringBuilder();
+        for (String block : blocks) {
+            if (random.nextBoolean()) {
+                builder.append(block.replace("\n", lineSeparator)).append(lineSeparator);
+            }
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Models GradleProject.addDependency, which appends a line at the end of dependencies closure.
+     */
+    void addDependency(Dependency dependency) {
+        entries.add(new Entry(String.format("    %s '%s'",
+                dependency.getType().getMethodName(), dependency.toGradleString()), dependency));
+    }
+
+    /**
+     * Models GradleProject.removeDependency, which removes whole lines of all matching declarations.
+     */
+    void removeDependency(Dependency dependency) {
+        Iterator<Entry> iterator = entries.iterator();
+        while (iterator.hasNext()) {
+            if (dependency.equals(iterator.next().dependency)) {
+                iterator.remove();
+            }
+        }
+    }
+
+    List<Dependency> getDependencies() {
+        List<Dependency> dependencies = new ArrayList<>();
+        for (Entry entry : entries) {
+            if (entry.dependency != null) {
+                dependencies.add(entry.dependency);
+            }
+        }
+        return dependencies;
+    }
+
+    boolean declares(Dependency dependency) {
+        return getDependencies().contains(dependency);
+    }
+
+    /**
+     * @return True if edited source is expected to be the same as rendered model.
+     */
+    boolean isRenderedExactly() {
+        return shape == Shape.LINES;
+    }
+
+    Dependency randomDeclaredDependency(Random random) {
+        List<Dependency> dependencies = getDependencies();
+        return dependencies.isEmpty() ? randomDependency(random) : dependencies.get(random.nextInt(dependencies.size()));
+    }
+
+    String render() {
+        StringBuilder builder = new StringBuilder(header);
+        switch (shape) {
+            case ONE_LINE:
+                builder.append("dependencies {");
+                for (int index = 0; index < entries.size(); index++) {
+                    builder.append(index == 0 ? " " : "; ").append(entries.get(index).text.trim());
+                }
+                builder.append(" }").append(lineSeparator);
+                break;
+            case SEMICOLONS:
+                builder.append(openingLine).append(lineSeparator);
+                for (int index = 0; index < entries.size(); index += 2) {
+                    builder.append(entries.get(index).text);
+                    if (index + 1 < entries.size()) {
+                        builder.append("; ").append(entries.get(index + 1).text.trim());
+                    }
+                    builder.append(lineSeparator);
+                }
+                builder.append("}").append(lineSeparator);
+                break;
+            default:
+                builder.append(openingLine).append(lineSeparator);
+                for (Entry entry : entries) {
+                    builder.append(entry.text).append(lineSeparator);
+                }
+                builder.append("}").append(lineSeparator);
+        }
+        builder.append(footer);
+        return builder.toString();
+    }
+
+    static List<String> sortedStrings(List<Dependency> dependencies) {
+        List<String> strings = new ArrayList<>();
+        for (Dependency dependency : dependencies) {
+            strings.add(dependency.toString());
+        }
+        Collections.sort(strings);
+        return strings;
+    }
+
+    /**
+     * Layout of the dependencies closure.
+     */
+    enum Shape {
+        LINES, ONE_LINE, SEMICOLONS
+    }
+
+    static class Entry {
+
+        private final String text;
+        private final Dependency dependency;
+
+        Entry(String text, Dependency dependency) {
+            this.text = text;
+            this.dependency = dependency;
+        }
+    }
+}
@@ -0,0 +1,219 @@
+package org.jboss.forge.project;
+
+import com.google.common.base.Charsets;
+import com.google.common.io.Files;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.MoreExecutors;
+import org.jboss.forge.parser.groovy.ParseDiagnostic;
+import org.jboss.forge.parser.groovy.SourceCodeElement;
+import org.jboss.forge.parser.groovy.UnresolvedInvocation;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * @author Adam Wyłuda
+ */
+public class DependencyDiffTest {
+
+    @Test
+    public void diffTest() {
+        String baseSource = "dependencies {\n" +
+                "    compile 'a:b:1'\n" +
+                "    compile group: 'c', name: 'd', version: '2'\n" +
+                "    testCompile 'junit:junit:4.10'\n" +
+                "}\n";
+        String headSource = "dependencies {\n" +
+                "    compile 'c:d:2'\n" +
+                "    testCompile 'junit:junit:4.11'\n" +
+                "    runtime 'a:b:1'\n" +
+                "}\n";
+
+        DependencyDiff diff = DependencyDiff.compute(baseSource, headSource);
+        // Declaration with a map and with a string are the same dependency
+        assertEquals(1, diff.getAdded().size());
+        assertEquals(Dependency.fromString("a:b:1", Dependency.Type.RUNTIME), diff.getAdded().get(0).getDependency());
+        assertEquals(4, diff.getAdded().get(0).getLineNumber());
+
+        assertEquals(1, diff.getRemoved().size());
+        assertEquals(Dependency.fromString("a:b:1", Dependency.Type.COMPILE), diff.getRemoved().get(0).getDependency());
+        assertEquals(2, diff.getRemoved().get(0).getLineNumber());
+
+        assertEquals(1, diff.getVersionChanges().size());
+        DependencyDiff.VersionChange versionChange = diff.getVersionChanges().get(0);
+        assertEquals("4.10", versionChange.getBase().getDependency().getVersion());
+        assertEquals("4.11", versionChange.getHead().getDependency().getVersion());
+        assertEquals(4, versionChange.getBase().getLineNumber());
+        assertEquals(3, versionChange.getHead().getLineNumber());
+
+        assertTrue(DependencyDiff.compute(baseSource, baseSource).isEmpty());
+    }
+
+    @Test
+    public void duplicatesTest() {
+        String baseSource = "dependencies {\n" +
+                "    compile 'a:b:1'\n" +
+                "    compile 'a:b:2'\n" +
+                "}\n";
+        String headSource = "dependencies {\n" +
+                "    compile 'a:b:2'\n" +
+                "    compile 'a:b:3'\n" +
+                "    compile 'a:b:3'\n" +
+                "}\n";
+
+        DependencyDiff diff = DependencyDiff.compute(baseSource, headSource);
+        // Equal versions are matched first, even if their order has changed
+        assertEquals(1, diff.getVersionChanges().size());
+        assertEquals("1", diff.getVersionChanges().get(0).getBase().getDependency().getVersion());
+        assertEquals(3, diff.getVersionChanges().get(0).getHead().getLineNumber());
+        assertEquals(1, diff.getAdded().size());
+        assertEquals(4, diff.getAdded().get(0).getLineNumber());
+        assertEquals(0, diff.getRemoved().size());
+    }
+
+    @Test
+    public void mixedDeclarationsTest() {
+        String baseSource = "dependencies {\n" +
+                "    compile group: 'a', name: 'b', version: '1'\n" +
+                "    compile 'a:b:2'\n" +
+                "}\n";
+        String headSource = "dependencies {\n" +
+                "    compile 'a:b:3'\n" +
+                "}\n";
+
+        // Declarations with a map and with a string are paired in source order
+        DependencyDiff diff = DependencyDiff.compute(baseSource, headSource);
+        assertEquals(1, diff.getVersionChanges().size());
+        assertEquals(2, diff.getVersionChanges().get(0).getBase().getLineNumber());
+        assertEquals(1, diff.getRemoved().size());
+        assertEquals(3, diff.getRemoved().get(0).getLineNumber());
+    }
+
+    @Test
+    public void unreadableDeclarationsTest() {
+        String baseSource = "dependencies {\n" +
+                "    compile 'a:b'\n" +
+                "    compile 'c:d:1'\n" +
+                "}\n";
+        String headSource = "dependencies {\n" +
+                "    compile 'a:b:1:jdk15'\n" +
+                "    compile 'c:d:2'\n" +
+                "}\n";
+
+        // Declarations which can't be read are skipped and reported
+        DependencyDiff diff = DependencyDiff.compute(baseSource, headSource);
+        assertEquals(1, diff.getVersionChanges().size());
+        assertTrue(diff.getAdded().isEmpty());
+        assertTrue(diff.getRemoved().isEmpty());
+        assertFalse(diff.isComplete());
+        assertEquals(1, diff.getBaseSkipped().size());
+        assertEquals(2, diff.getBaseSkipped().get(0).getLineNumber());
+        assertEquals(1, diff.getHeadSkipped().size());
+    }
+
+    @Test
+    public void skippedDeclarationsTest() {
+        String baseSource = "dependencies {\n" +
+                "    compile 'a:b:1'\n" +
+                "    compile 'c:d:1'\n" +
+                "}\n";
+        String headSource = "dependencies {\n" +
+                "    compile \"a:b:$fromRoot\"\n" +
+                "    compile group: 'c' name: 'd', version: '1'\n" +
+                "}\n";
+
+        // Declarations which became unresolved or broken are reported as removed, but the diff isn't complete
+        DependencyDiff diff = DependencyDiff.compute(baseSource, headSource);
+        assertEquals(2, diff.getRemoved().size());
+        assertFalse(diff.isComplete());
+        assertTrue(diff.getBaseSkipped().isEmpty());
+        List<SourceCodeElement> skipped = diff.getHeadSkipped();
+        assertEquals(2, skipped.size());
+        assertTrue(skipped.get(0) instanceof UnresolvedInvocation);
+        assertEquals(2, skipped.get(0).getLineNumber());
+        assertTrue(skipped.get(1) instanceof ParseDiagnostic);
+        assertEquals(3, skipped.get(1).getLineNumber());
+
+        assertTrue(DependencyDiff.compute(baseSource, baseSource.replace("1", "2")).isComplete());
+    }
+
+    @Test
+    public void batchTest() throws Exception {
+        File directory = Files.createTempDir();
+        List<File> baseFiles = new ArrayList<>();
+        List<File> headFiles = new ArrayList<>();
+        for (int index = 0; index < 20; index++) {
+            File baseFile = new File(directory, "base" + index + ".gradle");
+            File headFile = new File(directory, "head" + index + ".gradle");
+            Files.write("dependencies {\n    compile 'a:b:" + index + "'\n}\n", baseFile, Charsets.UTF_8);
+            Files.write("dependencies {\n    compile 'a:b:" + (index % 2 == 0 ? index : index + 1) + "'\n}\n",
+                    headFile, Charsets.UTF_8);
+            baseFiles.add(baseFile);
+            headFiles.add(headFile);
+        }
+        // Build file added in head
+        baseFiles.add(new File(directory, "missing.gradle"));
+        headFiles.add(headFiles.get(0));
+
+        ListeningExecutorService executor = MoreExecutors.listeningDecorator(Executors.newFixedThreadPool(4));
+        // Single thread is kept busy and only one pair fits in the queue, so the other pairs are rejected
+        ListeningExecutorService boundedExecutor = MoreExecutors.listeningDecorator(new ThreadPoolExecutor(1, 1,
+                0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<Runnable>(1)));
+        try {
+            List<DependencyDiff> diffs = Futures.allAsList(
+                    DependencyDiff.computeAll(baseFiles, headFiles, Charsets.UTF_8, executor)).get();
+            assertEquals(21, diffs.size());
+            for (int index = 0; index < 20; index++) {
+                assertEquals(index % 2 == 0 ? 0 : 1, diffs.get(index).getVersionChanges().size());
+            }
+            assertEquals(1, diffs.get(20).getAdded().size());
+
+            // Rejected pairs fail on their own, without affecting the accepted one
+            final CountDownLatch latch = new CountDownLatch(1);
+            boundedExecutor.submit(new Callable<Void>() {
+                @Override
+                public Void call() throws InterruptedException {
+                    latch.await();
+                    return null;
+                }
+            });
+            List<ListenableFuture<DependencyDiff>> futures = DependencyDiff.computeAll(baseFiles.subList(0, 3),
+                    headFiles.subList(0, 3), Charsets.UTF_8, boundedExecutor);
+            latch.countDown();
+            assertEquals(3, futures.size());
+            assertTrue(futures.get(0).get().isEmpty());
+            for (ListenableFuture<DependencyDiff> future : futures.subList(1, 3)) {
+                try {
+                    future.get();
+                    fail("Pair must fail when the executor rejects it");
+                } catch (ExecutionException e) {
+                    assertTrue(e.getCause() instanceof RejectedExecutionException);
+                }
+            }
+        } finally {
+            executor.shutdown();
+            boundedExecutor.shutdown();
+            for (File file : directory.listFiles()) {
+                file.delete();
+            }
+            directory.delete();
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package org.jboss.forge.project;
+
+import org.jboss.forge.parser.groovy.SourcePatch;
+import org.jboss.forge.parser.groovy.SourceUtil;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author Adam Wyłuda
+ */
+public class EditJournalTest {
+
+    @Test
+    public void undoRedoTest() {
+        EditJournal journal = new EditJournal("compile 'a:b:1'\n");
+        journal.record(Arrays.asList(new SourcePatch(0, 7, "runtime")));
+        journal.record(Arrays.asList(SourcePatch.insertion(16, "compile 'c:d:2'\n")));
+        assertEquals("runtime 'a:b:1'\ncompile 'c:d:2'\n", journal.getText().toString());
+
+        journal.undo();
+        assertEquals("runtime 'a:b:1'\n", journal.getText().toString());
+        journal.undo();
+        assertEquals("compile 'a:b:1'\n", journal.getText().toString());
+        assertFalse(journal.canUndo());
+
+        journal.redo();
+        assertEquals("runtime 'a:b:1'\n", journal.getText().toString());
+        journal.record(Arrays.asList(SourcePatch.deletion(0, 8)));
+        assertFalse(journal.canRedo());
+        assertEquals("'a:b:1'\n", journal.getText().toString());
+    }
+
+    @Test
+    public void historyLimitTest() {
+        EditJournal journal = new EditJournal("", 2);
+        for (int index = 0; index < 5; index++) {
+            journal.record(Arrays.asList(SourcePatch.insertion(0, String.valueOf(index))));
+        }
+        journal.undo();
+        journal.undo();
+        assertFalse(journal.canUndo());
+        assertEquals("210", journal.getText().toString());
+    }
+
+    @Test
+    public void squashTest() {
+        String source = "dependencies {\n    compile 'a:b:1'\n}\n";
+        EditJournal journal = new EditJournal(source);
+        journal.record(Arrays.asList(SourcePatch.insertion(34, "    compile 'c:d:2'\n")));
+        journal.record(Arrays.asList(SourcePatch.deletion(15, 20)));
+        journal.record(Arrays.asList(SourcePatch.insertion(0, "// deps\n")));
+
+        List<SourcePatch> patches = journal.squash();
+        assertEquals(1, patches.size());
+        assertEquals(journal.getText().toString(), SourceUtil.applyPatches(source, patches));
+        assertEquals(0, journal.squash().size());
+
+        // Squashed history can be undone in one step
+        journal.undo();
+        assertEquals(source, journal.getText().toString());
+        assertFalse(journal.canUndo());
+    }
+
+    @Test
+    public void randomEditsTest() {
+        Random random = new Random(42);
+        StringBuilder builder = new StringBuilder();
+        for (int index = 0; index < 5000; index++) {
+            builder.append((char) ('a' + random.nextInt(26)));
+        }
+        String source = builder.toString();
+        EditJournal journal = new EditJournal(source, 1000);
+        List<String> versions = new ArrayList<>();
+        versions.add(source);
+        for (int step = 0; step < 500; step++) {
+            String current = versions.get(versions.size() - 1);
+            int offset = random.nextInt(current.length() + 1);
+            int deleteLength = random.nextInt(Math.min(20, current.length() - offset) + 1);
+            SourcePatch patch = new SourcePatch(offset, deleteLength, "x" + step);
+            journal.record(Arrays.asList(patch));
+            versions.add(patch.applyTo(current));
+        }
+        assertEquals(versions.get(versions.size() - 1), journal.getText().toString());
+
+        List<SourcePatch> patches = journal.squash();
+        assertEquals(versions.get(versions.size() - 1), SourceUtil.applyPatches(source, patches));
+        journal.undo();
+        assertEquals(source, journal.getText().toString());
+        assertTrue(journal.canRedo());
+    }
+}
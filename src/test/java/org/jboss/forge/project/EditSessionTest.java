@@ -0,0 +1,201 @@
+package org.jboss.forge.project;
+
+import org.junit.Test;
+
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * @author Adam Wyłuda
+ */
+public class EditSessionTest {
+
+    @Test
+    public void provisioningTest() {
+        String source = "apply plugin: 'java'\n" +
+                "\n" +
+                "repositories { jcenter() }\n" +
+                "\n" +
+                "dependencies {\n" +
+                "    compile group: 'a', name: 'b', version: '1'\n" +
+                "    testCompile 'junit:junit:4.10'\n" +
+                "}\n";
+
+        GradleProject gradleProject = new GradleProject(source);
+        new EditSession()
+                .applyPlugin("java")
+                .applyPlugin("war")
+                .addInvocation("repositories", "mavenCentral")
+                .addDependency(Dependency.fromString("a:b:1", Dependency.Type.COMPILE))
+                .addDependency(Dependency.fromString("c:d:2", Dependency.Type.RUNTIME))
+                .removeDependency(Dependency.fromString("junit:junit:4.10", Dependency.Type.TEST_COMPILE))
+                .addDependency(Dependency.fromString("junit:junit:4.11", Dependency.Type.TEST_COMPILE))
+                .apply(gradleProject);
+
+        assertEquals("apply plugin: 'java'\n" +
+                "apply plugin: 'war'\n" +
+                "\n" +
+                "repositories { jcenter()\n" +
+                "    mavenCentral()\n" +
+                "}\n" +
+                "\n" +
+                "dependencies {\n" +
+                "    compile group: 'a', name: 'b', version: '1'\n" +
+                "    runtime 'c:d:2'\n" +
+                "    testCompile 'junit:junit:4.11'\n" +
+                "}\n", gradleProject.getSource());
+
+        // All edits are a single step
+        gradleProject.undo();
+        assertEquals(source, gradleProject.getSource());
+        assertFalse(gradleProject.canUndo());
+    }
+
+    @Test
+    public void createBlocksTest() {
+        String source = "buildscript {\n" +
+                "    dependencies {\n" +
+                "        classpath 'a:b:1'\n" +
+                "    }\n" +
+                "}\n";
+
+        GradleProject gradleProject = new GradleProject(source);
+        EditSession editSession = new EditSession()
+                .addStringInvocation("buildscript.dependencies", "classpath", "c:d:2")
+                .addInvocation("buildscript.repositories", "mavenCentral")
+                .addMapInvocation("", "apply", Collections.singletonMap("plugin", "idea"))
+                .addInvocation("repositories", "mavenLocal")
+                .addStringInvocation("repositories.maven", "url", "http://example.com/repository");
+        editSession.apply(gradleProject);
+
+        // Plugin is applied after buildscript block, which has to be the first one
+        assertEquals("buildscript {\n" +
+                "    dependencies {\n" +
+                "        classpath 'a:b:1'\n" +
+                "        classpath 'c:d:2'\n" +
+                "    }\n" +
+                "    repositories {\n" +
+                "        mavenCentral()\n" +
+                "    }\n" +
+                "}\n" +
+                "apply plugin: 'idea'\n" +
+                "\n" +
+                "repositories {\n" +
+                "    mavenLocal()\n" +
+                "    maven {\n" +
+                "        url 'http://example.com/repository'\n" +
+                "    }\n" +
+                "}\n", gradleProject.getSource());
+
+        // Applying the same session again doesn't change anything
+        String editedSource = gradleProject.getSource();
+        assertTrue(editSession.apply(gradleProject).isEmpty());
+        assertEquals(editedSource, gradleProject.getSource());
+    }
+
+    @Test
+    public void removeInvocationsTest() {
+        String source = "apply plugin: 'java'\n" +
+                "apply plugin: 'eclipse'\n" +
+                "repositories {\n" +
+                "    mavenLocal()\n" +
+                "    mavenCentral()\n" +
+                "}\n";
+
+        GradleProject gradleProject = new GradleProject(source);
+        new EditSession()
+                .removeMapInvocation("", "apply", Collections.singletonMap("plugin", "eclipse"))
+                .removeInvocation("repositories", "mavenLocal")
+                .addInvocation("repositories", "jcenter")
+                .apply(gradleProject);
+
+        assertEquals("apply plugin: 'java'\n" +
+                "repositories {\n" +
+                "    mavenCentral()\n" +
+                "    jcenter()\n" +
+                "}\n", gradleProject.getSource());
+    }
+
+    @Test
+    public void replaceInOneLineBlockTest() {
+        GradleProject gradleProject = new GradleProject("dependencies { compile 'a:b:1'; compile 'c:d:2' }\n");
+        new EditSession()
+                .removeDependency(Dependency.fromString("c:d:2", Dependency.Type.COMPILE))
+                .addDependency(Dependency.fromString("e:f:3", Dependency.Type.COMPILE))
+                .apply(gradleProject);
+        assertEquals("dependencies { compile 'a:b:1'\n" +
+                "    compile 'e:f:3'\n" +
+                "}\n", gradleProject.getSource());
+
+        // Block without remaining statements
+        gradleProject = new GradleProject("repositories { jcenter() }\n");
+        new EditSession()
+                .removeInvocation("repositories", "jcenter")
+                .addInvocation("repositories", "mavenCentral")
+                .apply(gradleProject);
+        assertEquals("repositories {\n" +
+                "    mavenCentral()\n" +
+                "}\n", gradleProject.getSource());
+
+        gradleProject = new GradleProject("buildscript { repositories { jcenter() } }\n");
+        new EditSession()
+                .removeInvocation("buildscript.repositories", "jcenter")
+                .addInvocation("buildscript.repositories", "mavenCentral")
+                .apply(gradleProject);
+        assertEquals("buildscript { repositories {\n" +
+                "    mavenCentral()\n" +
+                "} }\n", gradleProject.getSource());
+    }
+
+    @Test
+    public void leadingStatementsTest() {
+        String source = "/*\n" +
+                " * License header\n" +
+                " */\n" +
+                "// Build of the project\n" +
+                "\n" +
+                "group = 'org.example'\n";
+
+        GradleProject gradleProject = new GradleProject(source);
+        new EditSession().applyPlugin("java").apply(gradleProject);
+        assertEquals(source.replace("\n\ngroup", "\n\napply plugin: 'java'\ngroup"), gradleProject.getSource());
+
+        source = "// License header\n" +
+                "plugins {\n" +
+                "    id 'java'\n" +
+                "}\n" +
+                "\n" +
+                "group = 'org.example'\n";
+        gradleProject = new GradleProject(source);
+        new EditSession().applyPlugin("war").apply(gradleProject);
+        assertEquals(source.replace("}\n", "}\napply plugin: 'war'\n"), gradleProject.getSource());
+
+        gradleProject = new GradleProject("// License header");
+        new EditSession().applyPlugin("java").apply(gradleProject);
+        assertEquals("// License header\napply plugin: 'java'\n", gradleProject.getSource());
+    }
+
+    @Test
+    public void removeSharedInvocationTest() {
+        String source = "dependencies {\n" +
+                "    compile 'a:b:1', 'c:d:2'\n" +
+                "}\n";
+
+        GradleProject gradleProject = new GradleProject(source);
+        try {
+            new EditSession()
+                    .addDependency(Dependency.fromString("e:f:3", Dependency.Type.COMPILE))
+                    .removeDependency(Dependency.fromString("a:b:1", Dependency.Type.COMPILE))
+                    .apply(gradleProject);
+            fail("Argument of multi-argument invocation must not be removed alone");
+        } catch (IllegalStateException e) {
+            // expected
+        }
+        assertEquals(source, gradleProject.getSource());
+        assertFalse(gradleProject.canUndo());
+    }
+}
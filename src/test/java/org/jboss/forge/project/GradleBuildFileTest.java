@@ -0,0 +1,125 @@
+package org.jboss.forge.project;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.Function;
+import com.google.common.io.Files;
+import org.jboss.forge.parser.groovy.SourcePatch;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * @author Adam Wyłuda
+ */
+public class GradleBuildFileTest {
+
+    private File file;
+
+    @Before
+    public void createFile() throws IOException {
+        file = File.createTempFile("build", ".gradle");
+        Files.write("dependencies {\n    compile 'a:b:1'\n}\n", file, Charsets.UTF_8);
+    }
+
+    @After
+    public void deleteFile() {
+        file.delete();
+    }
+
+    @Test
+    public void concurrentEditTest() throws IOException {
+        GradleBuildFile firstWorker = new GradleBuildFile(file, Charsets.UTF_8);
+        GradleBuildFile secondWorker = new GradleBuildFile(file, Charsets.UTF_8);
+
+        firstWorker.addDependency(Dependency.fromString("c:d:2", Dependency.Type.COMPILE));
+        assertEquals(0, firstWorker.getReloadCount());
+
+        // Second worker has stale content, so it reapplies its edits instead of overwriting the file
+        secondWorker.stage(new Function<GradleProject, List<SourcePatch>>() {
+            @Override
+            public List<SourcePatch> apply(GradleProject project) {
+                return project.removeDependency(Dependency.fromString("a:b:1", Dependency.Type.COMPILE));
+            }
+        });
+        assertTrue(secondWorker.hasPendingEdits());
+        secondWorker.commit();
+        assertFalse(secondWorker.hasPendingEdits());
+        assertEquals(1, secondWorker.getReloadCount());
+
+        String expectedSource = "dependencies {\n    compile 'c:d:2'\n}\n";
+        assertEquals(expectedSource, Files.toString(file, Charsets.UTF_8));
+        assertEquals(expectedSource, secondWorker.getProject().getSource());
+
+        // History of the reloaded project contains reapplied edit
+        secondWorker.undo();
+        assertFalse(secondWorker.getProject().canUndo());
+        // Content of the file is the same as written by the first worker, so it doesn't need a reload
+        firstWorker.removeDependency(Dependency.fromString("c:d:2", Dependency.Type.COMPILE));
+        assertEquals(0, firstWorker.getReloadCount());
+        assertEquals("dependencies {\n    compile 'a:b:1'\n}\n", Files.toString(file, Charsets.UTF_8));
+    }
+
+    @Test
+    public void historyConflictTest() throws IOException {
+        GradleBuildFile buildFile = new GradleBuildFile(file, Charsets.UTF_8);
+        buildFile.addDependency(Dependency.fromString("c:d:2", Dependency.Type.COMPILE));
+        buildFile.stage(GradleBuildFile.UNDO);
+
+        // File is modified by someone else between staging the undo and committing it
+        String otherSource = "dependencies {\n    compile 'e:f:3'\n}\n";
+        Files.write(otherSource, file, Charsets.UTF_8);
+        try {
+            buildFile.commit();
+            fail("Undo of the previous content must not be applied");
+        } catch (EditConflictException e) {
+            // expected
+        }
+
+        assertEquals(otherSource, Files.toString(file, Charsets.UTF_8));
+        assertEquals(otherSource, buildFile.getProject().getSource());
+        assertFalse(buildFile.hasPendingEdits());
+        assertEquals(1, buildFile.getReloadCount());
+    }
+
+    @Test
+    public void parallelWorkersTest() throws Exception {
+        int workerCount = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(workerCount);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int worker = 0; worker < workerCount; worker++) {
+            final GradleBuildFile buildFile = new GradleBuildFile(file, Charsets.UTF_8);
+            final int workerIndex = worker;
+            futures.add(executor.submit(new Callable<Void>() {
+                @Override
+                public Void call() throws IOException {
+                    for (int edit = 0; edit < 5; edit++) {
+                        buildFile.addDependency(Dependency.fromString(
+                                String.format("worker%d:edit%d:1", workerIndex, edit), Dependency.Type.COMPILE));
+                    }
+                    return null;
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+
+        List<Dependency> dependencies = new GradleProject(Files.toString(file, Charsets.UTF_8)).getDependencies();
+        assertEquals(workerCount * 5 + 1, dependencies.size());
+    }
+}
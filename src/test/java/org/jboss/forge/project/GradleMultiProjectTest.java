@@ -0,0 +1,112 @@
+package org.jboss.forge.project;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.Function;
+import com.google.common.io.Files;
+import org.jboss.forge.parser.groovy.SourcePatch;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author Adam Wyłuda
+ */
+public class GradleMultiProjectTest {
+
+    private static final String API_SOURCE = "dependencies {\n    compile 'a:b:1', 'c:d:2'\n}\n";
+
+    private File rootDirectory;
+
+    @Before
+    public void createProjects() throws IOException {
+        rootDirectory = Files.createTempDir();
+        writeFile("settings.gradle", "include 'api', 'services:user'\n");
+        writeFile("api/build.gradle", API_SOURCE);
+        writeFile("services/user/build.gradle", "dependencies {\n    compile 'e:f:3'\n}\n");
+    }
+
+    @After
+    public void deleteProjects() throws IOException {
+        deleteRecursively(rootDirectory);
+    }
+
+    @Test
+    public void lazyLoadingTest() throws IOException {
+        GradleMultiProject multiProject = new GradleMultiProject(rootDirectory);
+        assertEquals(0, multiProject.getLoadedProjectCount());
+
+        // Every argument of multi-argument invocation is a separate dependency
+        List<Dependency> dependencies = multiProject.getProject(":api").get().getDependencies();
+        assertEquals(Arrays.asList(Dependency.fromString("a:b:1", Dependency.Type.COMPILE),
+                Dependency.fromString("c:d:2", Dependency.Type.COMPILE)), dependencies);
+        assertEquals(1, multiProject.getLoadedProjectCount());
+
+        // Project without build file is cached as absent
+        assertFalse(multiProject.getProject(":services").isPresent());
+        assertEquals(2, multiProject.getLoadedProjectCount());
+    }
+
+    @Test
+    public void evictionTest() throws IOException {
+        // Room for the api project only
+        GradleMultiProject multiProject = new GradleMultiProject(rootDirectory, API_SOURCE.length() + 10);
+        GradleProject apiProject = multiProject.getProject(":api").get();
+        assertTrue(multiProject.getProject(":api").get() == apiProject);
+
+        multiProject.getProject(":services:user");
+        assertTrue(multiProject.getProject(":api").get() != apiProject);
+    }
+
+    @Test
+    public void editEvictionTest() throws IOException {
+        GradleMultiProject multiProject = new GradleMultiProject(rootDirectory, API_SOURCE.length() + 10);
+        GradleProject apiProject = multiProject.getProject(":api").get();
+        multiProject.edit(":api", new Function<GradleProject, List<SourcePatch>>() {
+            @Override
+            public List<SourcePatch> apply(GradleProject project) {
+                return project.addDependency(Dependency.fromString("g:h:4", Dependency.Type.RUNTIME));
+            }
+        });
+        assertEquals(Collections.singleton(":api"), multiProject.getEditedProjectPaths());
+
+        // Edited project is not evicted by loading other projects
+        multiProject.getProject(":services:user");
+        assertTrue(multiProject.getProject(":api").get() == apiProject);
+        assertEquals(3, apiProject.getDependencies().size());
+
+        // Saved project is weighed again, so it's evicted as it's over the limit
+        multiProject.save(":api");
+        assertTrue(multiProject.getEditedProjectPaths().isEmpty());
+        assertEquals(apiProject.getSource(), Files.toString(new File(rootDirectory, "api/build.gradle"), Charsets.UTF_8));
+        assertTrue(multiProject.getProject(":api").get() != apiProject);
+        assertEquals(3, multiProject.getProject(":api").get().getDependencies().size());
+    }
+
+    void writeFile(String path, String content) throws IOException {
+        File file = new File(rootDirectory, path);
+        Files.createParentDirs(file);
+        Files.write(content, file, Charsets.UTF_8);
+    }
+
+    static void deleteRecursively(File file) throws IOException {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                deleteRecursively(child);
+            }
+        }
+        if (!file.delete()) {
+            throw new IOException("Can't delete " + file);
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package org.jboss.forge.project;
+
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Random;
+import java.util.logging.Logger;
+import java.util.regex.Pattern;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.fail;
+
+/**
+ * Runs random add and remove operations on generated build scripts and compares results with a model.
+ * Operations are applied directly to the project or with {@link EditSession}. Scripts with one-line
+ * or ';' separated dependencies are compared by dependencies only, others also by source.
+ * The default run is short and uses a fixed seed, which makes it reproducible. Long soak runs are enabled
+ * with soak.operations and soak.seed system properties, for example -Dsoak.operations=50000 -Dsoak.seed=7.
+ * Failure messages contain the seed, throughput is logged and not asserted.
+ *
+ * @author Adam Wyłuda
+ */
+public class GradleProjectSoakTest {
+
+    private static final Logger LOGGER = Logger.getLogger(GradleProjectSoakTest.class.getName());
+    private static final int OPERATIONS = Integer.getInteger("soak.operations", 500);
+    private static final long SEED = Long.getLong("soak.seed", 20130701L);
+    private static final int OPERATIONS_PER_SCRIPT = 25;
+    private static final Pattern TRAILING_WHITESPACE = Pattern.compile("(?m)[ \\t]+\r?$");
+
+    @Test
+    public void addRemoveRoundTripTest() {
+        Random random = new Random(SEED);
+        long startTime = System.nanoTime();
+        int operation = 0;
+        while (operation < OPERATIONS) {
+            BuildScriptModel model = BuildScriptModel.generate(random, random.nextInt(10));
+            GradleProject gradleProject = new GradleProject(model.render());
+            for (int scriptOperation = 0; scriptOperation < OPERATIONS_PER_SCRIPT && operation < OPERATIONS; scriptOperation++) {
+                String sourceBefore = gradleProject.getSource();
+                boolean session = random.nextInt(4) == 0;
+                String description;
+                if (random.nextBoolean()) {
+                    Dependency dependency = BuildScriptModel.randomDependency(random);
+                    description = (session ? "session add " : "add ") + dependency;
+                    if (!session) {
+                        gradleProject.addDependency(dependency);
+                        model.addDependency(dependency);
+                    } else if (!model.declares(dependency)) {
+                        // Session doesn't add dependency which is already declared
+                        new EditSession().addDependency(dependency).apply(gradleProject);
+                        model.addDependency(dependency);
+                    }
+                } else {
+                    Dependency dependency = model.randomDeclaredDependency(random);
+                    description = (session ? "session remove " : "remove ") + dependency;
+                    if (session) {
+                        new EditSession().removeDependency(dependency).apply(gradleProject);
+                    } else {
+                        gradleProject.removeDependency(dependency);
+                    }
+                    model.removeDependency(dependency);
+                }
+                String message = String.format("Seed %d, %s from:%n%s", SEED, description, sourceBefore);
+                if (model.isRenderedExactly()) {
+                    assertEquals(message, model.render(), gradleProject.getSource());
+                }
+                assertFalse(message, TRAILING_WHITESPACE.matcher(gradleProject.getSource()).find());
+                assertEquals(message, BuildScriptModel.sortedStrings(model.getDependencies()),
+                        BuildScriptModel.sortedStrings(dependencies(gradleProject, message)));
+                operation++;
+            }
+        }
+        double seconds = (System.nanoTime() - startTime) / 1e9;
+        LOGGER.info(String.format("%d operations in %.2f s, %.0f operations per second (seed %d)",
+                OPERATIONS, seconds, OPERATIONS / seconds, SEED));
+    }
+
+    /**
+     * Edited source must stay valid, so it's parsed strictly.
+     */
+    static List<Dependency> dependencies(GradleProject gradleProject, String message) {
+        try {
+            return gradleProject.getDependencies();
+        } catch (RuntimeException exception) {
+            fail(message + "\nproduced source which can't be read: " + exception + "\n" + gradleProject.getSource());
+            return null;
+        }
+    }
+}
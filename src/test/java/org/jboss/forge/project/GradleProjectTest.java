@@ -1,10 +1,17 @@
 package org.jboss.forge.project;
 
+import org.codehaus.groovy.control.CompilationFailedException;
+import org.jboss.forge.parser.groovy.SourcePatch;
+import org.jboss.forge.parser.groovy.SourceUtil;
+import org.jboss.forge.parser.groovy.UnresolvedInvocation;
 import org.junit.Test;
 
+import java.util.Arrays;
 import java.util.List;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.fail;
 
 /**
  * @author Adam Wyłuda
@@ -33,6 +40,28 @@ public class GradleProjectTest {
         assertEquals("2.5", secondDependency.getVersion());
     }
 
+    @Test
+    public void listDependenciesTestInterpolated() {
+        String source = "ext.springVersion = '3.2.3.RELEASE'\n" +
+                "dependencies {\n" +
+                "    compile \"org.springframework:spring-core:$springVersion\"\n" +
+                "    compile \"org.hibernate:hibernate-core:$hibernateVersion\"; compile 'a:b:1'\n" +
+                "}\n";
+
+        GradleProject gradleProject = new GradleProject(source);
+        List<Dependency> dependencies = gradleProject.getDependencies();
+        assertEquals(2, dependencies.size());
+        assertEquals("3.2.3.RELEASE", dependencies.get(0).getVersion());
+
+        List<UnresolvedInvocation> unresolvedDependencies = gradleProject.getUnresolvedDependencies();
+        assertEquals(1, unresolvedDependencies.size());
+        assertEquals(4, unresolvedDependencies.get(0).getLineNumber());
+
+        // Unresolved declaration stays in place when its neighbour is removed
+        gradleProject.removeDependency(Dependency.fromString("a:b:1", Dependency.Type.COMPILE));
+        assertEquals(source.replace("; compile 'a:b:1'", ""), gradleProject.getSource());
+    }
+
     @Test
     public void listDependenciesTestEmpty() {
         String source = "dependencies{}";
@@ -50,6 +79,38 @@ public class GradleProjectTest {
         assertEquals(0, gradleProject.getDependencies().size());
     }
 
+    @Test
+    public void listDependenciesTestNoClosureSyntaxError() {
+        String source = "repositories { mavenCentral() \n";
+
+        GradleProject gradleProject = new GradleProject(source);
+        gradleProject.setTolerantParsing(true);
+        assertEquals(0, gradleProject.getDependencies().size());
+        // Strict project is parsed even without dependencies block
+        gradleProject.setTolerantParsing(false);
+        try {
+            gradleProject.getDependencies();
+            fail("Syntax error must be reported in strict mode");
+        } catch (CompilationFailedException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void listDependenciesTestNoClosureStrict() {
+        // Strict project with closed brackets isn't parsed when it can't have dependencies block
+        GradleProject gradleProject = new GradleProject("repositories { mavenCentral() }\nversion = \n");
+        assertEquals(0, gradleProject.getDependencies().size());
+        assertEquals(0, gradleProject.getParseCount());
+        // Other syntax errors are reported before the block is added
+        try {
+            gradleProject.addDependency(new Dependency("a", "b", "1", Dependency.Type.COMPILE));
+            fail("Syntax error must be reported before an edit in strict mode");
+        } catch (CompilationFailedException e) {
+            assertFalse(gradleProject.canUndo());
+        }
+    }
+
     @Test
     public void addDependencyTest() {
         String source = "dependencies {\n" +
@@ -99,4 +160,102 @@ public class GradleProjectTest {
         gradleProject.removeDependency(dependency);
         assertEquals(expectedOutput, gradleProject.getSource());
     }
+
+    @Test
+    public void addDependencyTestNoClosure() {
+        String source = "apply plugin: 'java'\n";
+        String expectedOutput = "apply plugin: 'java'\n" +
+                "\n" +
+                "dependencies {\n" +
+                "    compile 'x:y:1'\n" +
+                "}\n";
+        Dependency dependency = Dependency.fromString("x:y:1", Dependency.Type.COMPILE);
+
+        GradleProject gradleProject = new GradleProject(source);
+        gradleProject.addDependency(dependency);
+        assertEquals(expectedOutput, gradleProject.getSource());
+    }
+
+    @Test
+    public void addDependencyTestDryRun() {
+        String source = "dependencies {\n" +
+                "    compile 'a:b:2'\n" +
+                "}\n";
+        Dependency dependency = Dependency.fromString("x:y:1", Dependency.Type.COMPILE);
+
+        GradleProject gradleProject = new GradleProject(source);
+        gradleProject.setDryRun(true);
+        List<SourcePatch> patches = gradleProject.addDependency(dependency);
+        assertEquals(source, gradleProject.getSource());
+        assertEquals(Arrays.asList(SourcePatch.insertion(35, "    compile 'x:y:1'\n")), patches);
+    }
+
+    @Test
+    public void removeDependencyTestPatches() {
+        String source = "dependencies {\n" +
+                "    compile 'x:y:1'\n" +
+                "    compile 'a:b:2'\n" +
+                "    compile 'x:y:1'\n" +
+                "}\n";
+        String expectedOutput = "dependencies {\n" +
+                "    compile 'a:b:2'\n" +
+                "}\n";
+        Dependency dependency = Dependency.fromString("x:y:1", Dependency.Type.COMPILE);
+
+        GradleProject gradleProject = new GradleProject(source);
+        List<SourcePatch> patches = gradleProject.removeDependency(dependency);
+        assertEquals(2, patches.size());
+        assertEquals(expectedOutput, gradleProject.getSource());
+        assertEquals(expectedOutput, SourceUtil.applyPatches(source, patches));
+    }
+
+    @Test
+    public void undoRedoTest() {
+        String source = "dependencies {\n" +
+                "    compile 'a:b:2'\n" +
+                "}\n";
+        Dependency dependency = Dependency.fromString("x:y:1", Dependency.Type.COMPILE);
+
+        GradleProject gradleProject = new GradleProject(source);
+        gradleProject.addDependency(dependency);
+        gradleProject.removeDependency(Dependency.fromString("a:b:2", Dependency.Type.COMPILE));
+        assertEquals(Arrays.asList(dependency), gradleProject.getDependencies());
+
+        gradleProject.undo();
+        gradleProject.undo();
+        assertEquals(source, gradleProject.getSource());
+        assertFalse(gradleProject.canUndo());
+
+        gradleProject.redo();
+        assertEquals(2, gradleProject.getDependencies().size());
+        List<SourcePatch> patches = gradleProject.squashHistory();
+        assertEquals(gradleProject.getSource(), SourceUtil.applyPatches(source, patches));
+    }
+
+    @Test
+    public void undoRedoTestLazySource() {
+        String source = "dependencies {\n" +
+                "    compile 'a:b:2'\n" +
+                "}\n";
+
+        GradleProject gradleProject = new GradleProject(source);
+        gradleProject.addDependency(Dependency.fromString("x:y:1", Dependency.Type.COMPILE));
+        // Edit is recorded in the journal only, source string isn't built
+        assertEquals(1, gradleProject.getParseCount());
+        assertEquals(0, gradleProject.getSourceBuildCount());
+
+        for (int index = 0; index < 10; index++) {
+            gradleProject.undo();
+            gradleProject.redo();
+        }
+        gradleProject.undo();
+        assertEquals(1, gradleProject.getParseCount());
+        assertEquals(0, gradleProject.getSourceBuildCount());
+
+        // Source is built and parsed once, when it's read
+        assertEquals(1, gradleProject.getDependencies().size());
+        assertEquals(source, gradleProject.getSource());
+        assertEquals(2, gradleProject.getParseCount());
+        assertEquals(1, gradleProject.getSourceBuildCount());
+    }
 }
@@ -0,0 +1,43 @@
+package org.jboss.forge.project;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author Adam Wyłuda
+ */
+public class GradleSettingsTest {
+
+    @Test
+    public void projectPathsTest() {
+        String source = "rootProject.name = 'shop'\n" +
+                "include 'api'\n" +
+                "include 'services:user', ':services:order'\n";
+
+        GradleSettings settings = new GradleSettings(source);
+        assertEquals(Arrays.asList(":api", ":services", ":services:user", ":services:order"),
+                settings.getProjectPaths());
+        assertTrue(settings.containsProject(":"));
+        assertFalse(settings.containsProject(":web"));
+    }
+
+    @Test
+    public void childProjectPathsTest() {
+        String source = "include 'api', 'services:user', 'services:order'\n";
+
+        GradleSettings settings = new GradleSettings(source);
+        assertEquals(Arrays.asList(":api", ":services"), settings.getChildProjectPaths(":"));
+        assertEquals(Arrays.asList(":services:user", ":services:order"), settings.getChildProjectPaths(":services"));
+        assertEquals(0, settings.getChildProjectPaths(":api").size());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void childProjectPathsTestNotIncluded() {
+        new GradleSettings("include 'api'\n").getChildProjectPaths(":web");
+    }
+}
@@ -0,0 +1,127 @@
+package org.jboss.forge.scan;
+
+import org.jboss.forge.project.GradleProject;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * @author Adam Wyłuda
+ */
+public class DependencyIndexTest {
+
+    @Test
+    public void findTest() {
+        DependencyIndex index = createIndex();
+
+        List<DependencyIndex.IndexedDeclaration> declarations = index.find("com.google.guava", "guava", null, "15.0");
+        assertEquals(2, declarations.size());
+        assertEquals("web", declarations.get(0).getModule());
+        assertEquals("13.0.1", declarations.get(0).getDependency().getVersion());
+        assertEquals(3, declarations.get(0).getLineNumber());
+        assertEquals("api", declarations.get(1).getModule());
+
+        assertEquals(1, index.find("com.google.guava", "guava", "15.0", null).size());
+        assertEquals(0, index.find("com.google.guava", "guava-jdk5", null, null).size());
+    }
+
+    @Test
+    public void updateTest() {
+        DependencyIndex index = createIndex();
+        List<DependencyIndex.IndexedDeclaration> previousDeclarations = index.find("com.google.guava", "guava");
+
+        index.update("web", new GradleProject("dependencies {\n" +
+                "    compile 'com.google.guava:guava:16.0'\n" +
+                "}\n").getDependencyDeclarations());
+        assertEquals(1, index.find("com.google.guava", "guava", null, "15.0").size());
+        assertEquals(2, index.find("com.google.guava", "guava", "15.0", null).size());
+        // Result of earlier query isn't affected by the update
+        List<String> previousVersions = new ArrayList<>();
+        for (DependencyIndex.IndexedDeclaration declaration : previousDeclarations) {
+            previousVersions.add(declaration.getDependency().getVersion());
+        }
+        assertEquals(Arrays.asList("13.0.1", "14.0.1", "15.0"), previousVersions);
+
+        index.remove("api");
+        assertEquals(0, index.find("com.google.guava", "guava", null, "15.0").size());
+        assertEquals(0, index.find("junit", "junit").size());
+    }
+
+    @Test
+    public void unversionedTest() {
+        DependencyIndex index = createIndex();
+        index.update("legacy", new GradleProject("dependencies {\n" +
+                "    compile group: 'com.google.guava', name: 'guava'\n" +
+                "    compile 'com.google.guava:guava:12.0'\n" +
+                "}\n").getDependencyDeclarations());
+
+        // Declaration without version isn't below any version
+        List<DependencyIndex.IndexedDeclaration> declarations = index.find("com.google.guava", "guava", null, "13.0");
+        assertEquals(1, declarations.size());
+        assertEquals("12.0", declarations.get(0).getDependency().getVersion());
+        assertEquals(0, index.find("com.google.guava", "guava", "12.0", "12.0").size());
+        assertEquals(4, index.find("com.google.guava", "guava", "12.0", null).size());
+
+        declarations = index.find("com.google.guava", "guava");
+        assertEquals(5, declarations.size());
+        assertEquals("legacy", declarations.get(0).getModule());
+        assertEquals(null, declarations.get(0).getDependency().getVersion());
+
+        index.remove("legacy");
+        assertEquals(3, index.find("com.google.guava", "guava").size());
+    }
+
+    @Test
+    public void sameVersionOrderTest() {
+        DependencyIndex index = createIndex();
+        index.update("web", new GradleProject("dependencies {\n" +
+                "    compile 'com.google.guava:guava:15.0'\n" +
+                "}\n").getDependencyDeclarations());
+        index.update("core", new GradleProject("dependencies {\n" +
+                "    compile 'com.google.guava:guava:15.0'\n" +
+                "    testCompile 'com.google.guava:guava:15.0'\n" +
+                "}\n").getDependencyDeclarations());
+
+        // Declarations of the same version stay in order of updates
+        List<String> modules = new ArrayList<>();
+        for (DependencyIndex.IndexedDeclaration declaration : index.find("com.google.guava", "guava", "15.0", null)) {
+            modules.add(declaration.getModule());
+        }
+        assertEquals(Arrays.asList("web", "core", "core"), modules);
+    }
+
+    @Test
+    public void writeReadTest() throws IOException {
+        File indexFile = File.createTempFile("dependency-index", ".bin");
+        try {
+            createIndex().write(indexFile);
+            DependencyIndex index = DependencyIndex.read(indexFile);
+            assertEquals(3, index.getModuleCount());
+            assertEquals(2, index.find("com.google.guava", "guava", null, "15.0").size());
+        } finally {
+            indexFile.delete();
+        }
+    }
+
+    static DependencyIndex createIndex() {
+        DependencyIndex index = new DependencyIndex();
+        index.update("api", new GradleProject("dependencies {\n" +
+                "    compile 'com.google.guava:guava:14.0.1'\n" +
+                "    testCompile 'junit:junit:4.11'\n" +
+                "}\n").getDependencyDeclarations());
+        index.update("web", new GradleProject("dependencies {\n" +
+                "    compile 'org.slf4j:slf4j-api:1.7.5'\n" +
+                "    runtime group: 'com.google.guava', name: 'guava', version: '13.0.1'\n" +
+                "}\n").getDependencyDeclarations());
+        index.update("core", new GradleProject("dependencies {\n" +
+                "    compile 'com.google.guava:guava:15.0'\n" +
+                "}\n").getDependencyDeclarations());
+        return index;
+    }
+}
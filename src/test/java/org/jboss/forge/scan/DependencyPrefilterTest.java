@@ -0,0 +1,88 @@
+package org.jboss.forge.scan;
+
+import com.google.common.base.Charsets;
+import com.google.common.io.Files;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author Adam Wyłuda
+ */
+public class DependencyPrefilterTest {
+
+    @Test
+    public void tokensTest() {
+        assertTrue(mayDeclareDependencies("dependencies {\n    testRuntime 'a:b:1'\n}\n"));
+        assertTrue(mayDeclareDependencies("compile 'a:b:1'\ndependencies {}"));
+        assertFalse(mayDeclareDependencies("include 'api', 'services:user'\n"));
+        assertFalse(mayDeclareDependencies("dependencies {\n    classpath 'a:b:1'\n}\n"));
+        assertFalse(mayDeclareDependencies("compile 'a:b:1'\ndependencie"));
+        assertFalse(mayDeclareDependencies(""));
+    }
+
+    @Test
+    public void bufferPositionTest() {
+        ByteBuffer content = ByteBuffer.wrap("dependencies { compile 'a:b:1' }".getBytes(Charsets.UTF_8));
+        content.position(1);
+        assertFalse(DependencyPrefilter.mayDeclareDependencies(content));
+        assertEquals(1, content.position());
+    }
+
+    @Test
+    public void fileTest() throws IOException {
+        File file = File.createTempFile("build", ".gradle");
+        try {
+            Files.write("apply plugin: 'java'\ndependencies {\n    compile 'a:b:1'\n}\n", file, Charsets.UTF_8);
+            assertTrue(DependencyPrefilter.mayDeclareDependencies(file));
+
+            // Only a large file is mapped into memory
+            StringBuilder source = new StringBuilder();
+            while (source.length() <= ProjectScanner.MAPPING_THRESHOLD) {
+                source.append("// comment\n");
+            }
+            source.append("dependencies {\n    compile 'a:b:1'\n}\n");
+            Files.write(source, file, Charsets.UTF_8);
+            assertTrue(DependencyPrefilter.mayDeclareDependencies(file));
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void readTest() throws IOException {
+        File file = File.createTempFile("build", ".gradle");
+        try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+             FileChannel channel = randomAccessFile.getChannel()) {
+            randomAccessFile.write("compile 'a:b:1'".getBytes(Charsets.UTF_8));
+            ByteBuffer content = ProjectScanner.read(channel);
+            assertFalse(content instanceof MappedByteBuffer);
+            assertEquals("compile 'a:b:1'", Charsets.UTF_8.decode(content).toString());
+
+            randomAccessFile.setLength(ProjectScanner.MAPPING_THRESHOLD + 1);
+            assertTrue(ProjectScanner.read(channel) instanceof MappedByteBuffer);
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void supportedCharsetsTest() {
+        assertTrue(DependencyPrefilter.supports(Charsets.UTF_8));
+        assertTrue(DependencyPrefilter.supports(Charsets.ISO_8859_1));
+        assertFalse(DependencyPrefilter.supports(Charsets.UTF_16));
+    }
+
+    boolean mayDeclareDependencies(String source) {
+        return DependencyPrefilter.mayDeclareDependencies(ByteBuffer.wrap(source.getBytes(Charsets.UTF_8)));
+    }
+}
@@ -0,0 +1,212 @@
+package org.jboss.forge.scan;
+
+import com.google.common.base.Charsets;
+import com.google.common.io.Files;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author Adam Wyłuda
+ */
+public class ProjectScannerTest {
+
+    private File rootDirectory;
+    private File stateFile;
+
+    @Before
+    public void createProjects() throws IOException {
+        rootDirectory = Files.createTempDir();
+        // State file is kept outside of the scanned tree, so writing it doesn't change any directory
+        stateFile = new File(rootDirectory.getParentFile(), rootDirectory.getName() + ".scan-state");
+        writeFile("build.gradle", "apply plugin: 'java'\n");
+        writeFile("api/build.gradle", "dependencies {\n    compile 'a:b:1'\n}\n");
+        writeFile("services/user/build.gradle", "dependencies {\n    compile 'c:d:2'\n}\n");
+        writeFile("services/user/src/Main.java", "class Main {}\n");
+        // Tree is created well before the first scan, so its modification times are not racy
+        setLastModified(rootDirectory, System.currentTimeMillis() - 10000);
+    }
+
+    @After
+    public void deleteProjects() throws IOException {
+        deleteRecursively(rootDirectory);
+        stateFile.delete();
+    }
+
+    @Test
+    public void rescanTest() throws IOException {
+        RecordingListener listener = new RecordingListener();
+        ProjectScanner scanner = new ProjectScanner(rootDirectory, ScanState.read(stateFile));
+        ScanStatistics statistics = scanner.scan(listener);
+        scanner.getState().write(stateFile);
+        assertEquals(Arrays.asList("api/build.gradle", "build.gradle", "services/user/build.gradle"), listener.changed);
+        // Root build file doesn't declare dependencies, so it's not parsed, but its project is still available
+        assertEquals(2, statistics.getParsedFiles());
+        assertEquals(1, statistics.getSkippedParses());
+        assertEquals("apply plugin: 'java'\n", listener.results.get("build.gradle").getProject().getSource());
+
+        // Only changed module is reported, no directory is listed again
+        writeFile("services/user/build.gradle", "dependencies {\n    compile 'c:d:3'\n}\n");
+        listener = new RecordingListener();
+        scanner = new ProjectScanner(rootDirectory, ScanState.read(stateFile));
+        statistics = scanner.scan(listener);
+        assertEquals(Arrays.asList("services/user/build.gradle"), listener.changed);
+        assertTrue(listener.dependenciesChanged);
+        assertEquals(1, statistics.getParsedFiles());
+        assertEquals(5, statistics.getUnchangedDirectories());
+        // Subtrees of api and services/user/src have the same build files
+        assertEquals(2, statistics.getUnchangedSubtrees());
+        assertEquals(Collections.<String>emptyList(),
+                scanner.getState().getDirectoryListing("services/user/src").getBuildFileNames());
+
+        deleteFile("api/build.gradle");
+        listener = new RecordingListener();
+        statistics = scanner.scan(listener);
+        assertEquals(Arrays.asList("api/build.gradle"), listener.removed);
+        // Build file modified just before the previous scan is read again, but not parsed, as it's the same
+        assertEquals(1, statistics.getReadFiles());
+        assertEquals(0, statistics.getParsedFiles());
+        assertEquals(4, statistics.getUnchangedDirectories());
+
+        // New build file changes modification time of its directory
+        writeFile("services/user/src/build.gradle", "apply plugin: 'java'\n");
+        listener = new RecordingListener();
+        scanner.scan(listener);
+        assertEquals(Arrays.asList("services/user/src/build.gradle"), listener.changed);
+    }
+
+    @Test
+    public void racyModificationTest() throws IOException {
+        File file = new File(rootDirectory, "api/build.gradle");
+        setLastModified(file, System.currentTimeMillis());
+        ProjectScanner scanner = new ProjectScanner(rootDirectory, new ScanState());
+        scanner.scan(new RecordingListener());
+
+        // Modification within the same tick of a coarse clock keeps length and modification time
+        long lastModified = file.lastModified();
+        writeFile("api/build.gradle", "dependencies {\n    compile 'a:b:2'\n}\n");
+        setLastModified(file, lastModified);
+        RecordingListener listener = new RecordingListener();
+        ScanStatistics statistics = scanner.scan(listener);
+        assertEquals(Arrays.asList("api/build.gradle"), listener.changed);
+        assertTrue(listener.dependenciesChanged);
+        assertEquals(1, statistics.getReadFiles());
+    }
+
+    @Test
+    public void racyDirectoryTest() throws IOException {
+        File directory = new File(rootDirectory, "services/user/src");
+        setLastModified(directory, System.currentTimeMillis());
+        ProjectScanner scanner = new ProjectScanner(rootDirectory, new ScanState());
+        scanner.scan(new RecordingListener());
+
+        long lastModified = directory.lastModified();
+        writeFile("services/user/src/build.gradle", "apply plugin: 'java'\n");
+        setLastModified(directory, lastModified);
+        RecordingListener listener = new RecordingListener();
+        scanner.scan(listener);
+        assertEquals(Arrays.asList("services/user/src/build.gradle"), listener.changed);
+    }
+
+    @Test
+    public void corruptStateTest() throws IOException {
+        ProjectScanner scanner = new ProjectScanner(rootDirectory, new ScanState());
+        scanner.scan(new RecordingListener());
+        scanner.getState().write(stateFile);
+        byte[] content = Files.toByteArray(stateFile);
+
+        // Truncated state and state of another format both lead to a full scan
+        Files.write(Arrays.copyOf(content, content.length / 2), stateFile);
+        assertFullScan(ScanState.read(stateFile));
+        content[0] ^= 1;
+        Files.write(content, stateFile);
+        assertFullScan(ScanState.read(stateFile));
+        Files.write(new byte[0], stateFile);
+        assertFullScan(ScanState.read(stateFile));
+    }
+
+    void assertFullScan(ScanState state) throws IOException {
+        RecordingListener listener = new RecordingListener();
+        ScanStatistics statistics = new ProjectScanner(rootDirectory, state).scan(listener);
+        assertEquals(Arrays.asList("api/build.gradle", "build.gradle", "services/user/build.gradle"), listener.changed);
+        assertEquals(3, statistics.getReadFiles());
+        assertEquals(0, statistics.getUnchangedDirectories());
+    }
+
+    @Test
+    public void symbolicLinkCycleTest() throws IOException {
+        java.nio.file.Files.createSymbolicLink(new File(rootDirectory, "services/user/src/root").toPath(),
+                rootDirectory.toPath());
+        RecordingListener listener = new RecordingListener();
+        ScanStatistics statistics = new ProjectScanner(rootDirectory, new ScanState()).scan(listener);
+        assertEquals(Arrays.asList("api/build.gradle", "build.gradle", "services/user/build.gradle"), listener.changed);
+        assertEquals(3, statistics.getScannedFiles());
+    }
+
+    void writeFile(String path, String content) throws IOException {
+        File file = new File(rootDirectory, path);
+        Files.createParentDirs(file);
+        Files.write(content, file, Charsets.UTF_8);
+    }
+
+    void deleteFile(String path) {
+        assertTrue(new File(rootDirectory, path).delete());
+    }
+
+    static void setLastModified(File file, long lastModified) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                setLastModified(child, lastModified);
+            }
+        }
+        assertTrue(file.setLastModified(lastModified));
+    }
+
+    static void deleteRecursively(File file) throws IOException {
+        // Link is deleted without its target
+        File[] children = java.nio.file.Files.isSymbolicLink(file.toPath()) ? null : file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                deleteRecursively(child);
+            }
+        }
+        if (!file.delete()) {
+            throw new IOException("Can't delete " + file);
+        }
+    }
+
+    static class RecordingListener implements ScanListener {
+
+        private final List<String> changed = new ArrayList<>();
+        private final List<String> removed = new ArrayList<>();
+        private final Map<String, ModuleScanResult> results = new HashMap<>();
+        private boolean dependenciesChanged;
+
+        @Override
+        public void moduleChanged(ModuleScanResult result) {
+            changed.add(result.getPath());
+            results.put(result.getPath(), result);
+            Collections.sort(changed);
+            dependenciesChanged |= result.isDependenciesChanged();
+        }
+
+        @Override
+        public void moduleRemoved(String path) {
+            removed.add(path);
+        }
+    }
+}
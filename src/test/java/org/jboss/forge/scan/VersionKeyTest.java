@@ -0,0 +1,58 @@
+package org.jboss.forge.scan;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author Adam Wyłuda
+ */
+public class VersionKeyTest {
+
+    @Test
+    public void versionOrderTest() {
+        List<String> expectedOrder = Arrays.asList("1.0-dev", "1.0-alpha", "1.0-beta2", "1.0-beta10", "1.0-rc1",
+                "1.0-SNAPSHOT", "1.0", "1.0.1", "2", "14.0.1", "15.0-rc1", "15.0");
+        assertEquals(expectedOrder, sorted(expectedOrder));
+    }
+
+    @Test
+    public void longNumbersTest() {
+        // Timestamps and build numbers may not fit in a long
+        List<String> expectedOrder = Arrays.asList("1.999999999999999999", "1.20130701123456789012",
+                "1.90130701123456789012", "1.100000000000000000000");
+        assertEquals(expectedOrder, sorted(expectedOrder));
+
+        VersionKey versionKey = VersionKey.of("1.000000000000000000000000001");
+        assertEquals(VersionKey.of("1.1"), versionKey);
+        assertEquals(VersionKey.of("1.1").hashCode(), versionKey.hashCode());
+        assertTrue(VersionKey.of("1.0000000000000000000000000010").compareTo(VersionKey.of("1.9")) > 0);
+    }
+
+    @Test
+    public void specialValuesTest() {
+        assertEquals(VersionKey.of("1.0-RC"), VersionKey.of("1.0-rc"));
+        assertEquals(VersionKey.of("1.0-RC").hashCode(), VersionKey.of("1.0-rc").hashCode());
+    }
+
+    static List<String> sorted(List<String> versions) {
+        List<VersionKey> versionKeys = new ArrayList<>();
+        for (String version : versions) {
+            versionKeys.add(VersionKey.of(version));
+        }
+        Collections.shuffle(versionKeys);
+        Collections.sort(versionKeys);
+
+        List<String> sortedVersions = new ArrayList<>();
+        for (VersionKey versionKey : versionKeys) {
+            sortedVersions.add(versionKey.getVersion());
+        }
+        return sortedVersions;
+    }
+}